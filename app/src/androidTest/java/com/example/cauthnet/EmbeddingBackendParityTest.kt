@@ -0,0 +1,134 @@
+package com.example.cauthnet
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.ext.junit.runners.AndroidJUnit4
+
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.pytorch.Module
+
+import org.junit.Assert.*
+
+import java.util.Random
+
+/**
+ * Checks that the pure-Java backend running the exported weights gives the same embeddings as
+ * the scripted model under PyTorch Mobile, and that the int8 backend stays close to them. Fails
+ * when model_weights.bin was not re-exported after model_scripted.pt changed.
+ */
+@RunWith(AndroidJUnit4::class)
+class EmbeddingBackendParityTest {
+
+    companion object {
+        private const val MODEL_ASSET = "model_scripted.pt"
+        private const val WEIGHTS_ASSET = "model_weights.bin"
+        private const val MAX_BATCH = 32
+        private const val TOLERANCE = 1e-4f
+        // Euclidean distance between an int8 embedding and the float one, out of a possible 2
+        private const val INT8_TOLERANCE = 0.1
+        private val INPUT = EmbeddingBackend.INPUT_SIZE
+        private val OUTPUT = EmbeddingBackend.EMBEDDING_SIZE
+    }
+
+    private lateinit var pytorch: EmbeddingBackend
+    private lateinit var mlp: EmbeddingBackend
+    private lateinit var int8: EmbeddingBackend
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val model = ModelAssetCache(context, MODEL_ASSET, ModelAssetCache.appVersion(context)).resolve()
+        pytorch = PyTorchBackend(Module.load(model.absolutePath), MAX_BATCH)
+        val weights = context.assets.open(WEIGHTS_ASSET).use { MlpWeights.read(it) }
+        mlp = MlpBackend(weights, MAX_BATCH)
+        int8 = QuantizedMlpBackend(weights, MAX_BATCH)
+    }
+
+    @After
+    fun tearDown() {
+        pytorch.destroy()
+        mlp.destroy()
+        int8.destroy()
+    }
+
+    @Test
+    fun randomInputsMatch() {
+        // Standard deviation 4 puts a fair share of the values beyond the +-10 clamp
+        val random = Random(19)
+        repeat(200) {
+            val features = FloatArray(INPUT) { (random.nextGaussian() * 4).toFloat() }
+            assertClose(pytorch.embed(features), mlp.embed(features))
+        }
+    }
+
+    @Test
+    fun edgeInputsMatch() {
+        val inputs = listOf(
+            FloatArray(INPUT),
+            FloatArray(INPUT) { 1000f },
+            FloatArray(INPUT) { -1000f },
+            FloatArray(INPUT) { if (it % 2 == 0) 10f else -10f },
+            FloatArray(INPUT) { it * 1e-3f }
+        )
+        for (features in inputs) {
+            assertClose(pytorch.embed(features), mlp.embed(features))
+        }
+    }
+
+    @Test
+    fun batchesMatch() {
+        val random = Random(23)
+        // MAX_BATCH + 5 is split into two passes by both backends
+        for (rows in intArrayOf(1, 3, 4, MAX_BATCH, MAX_BATCH + 5)) {
+            val features = FloatArray(rows * INPUT) { (random.nextGaussian() * 4).toFloat() }
+            val expected = FloatArray(rows * OUTPUT)
+            val actual = FloatArray(rows * OUTPUT)
+            pytorch.embedBatch(features, rows, expected)
+            mlp.embedBatch(features, rows, actual)
+            assertClose(expected, actual)
+        }
+    }
+
+    @Test
+    fun mlpBatchIsBitIdenticalToSingle() {
+        val random = Random(29)
+        val rows = 11
+        val features = FloatArray(rows * INPUT) { (random.nextGaussian() * 4).toFloat() }
+        val batch = FloatArray(rows * OUTPUT)
+        mlp.embedBatch(features, rows, batch)
+        val single = FloatArray(OUTPUT)
+        for (r in 0 until rows) {
+            mlp.embed(features, r * INPUT, single, 0)
+            assertArrayEquals(batch.copyOfRange(r * OUTPUT, (r + 1) * OUTPUT), single, 0f)
+        }
+    }
+
+    @Test
+    fun int8StaysCloseToFloat() {
+        val random = Random(37)
+        repeat(200) {
+            val features = FloatArray(INPUT) { (random.nextGaussian() * 4).toFloat() }
+            val expected = pytorch.embed(features)
+            val actual = int8.embed(features)
+            val distance = Math.sqrt(expected.indices.sumOf { (expected[it] - actual[it]).toDouble().let { d -> d * d } })
+            assertTrue("distance $distance", distance < INT8_TOLERANCE)
+        }
+    }
+
+    @Test
+    fun embeddingsAreUnitLength() {
+        val random = Random(31)
+        val features = FloatArray(INPUT) { (random.nextGaussian() * 4).toFloat() }
+        val embedding = mlp.embed(features)
+        assertEquals(1.0, Math.sqrt(embedding.sumOf { it.toDouble() * it }), 1e-5)
+    }
+
+    private fun assertClose(expected: FloatArray, actual: FloatArray) {
+        assertEquals(expected.size, actual.size)
+        for (i in expected.indices) {
+            assertEquals("element $i", expected[i], actual[i], TOLERANCE)
+        }
+    }
+}
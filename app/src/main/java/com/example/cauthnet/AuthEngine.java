@@ -0,0 +1,873 @@
+package com.example.cauthnet;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.pytorch.Module;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Process-wide owner of the authentication pipeline: sensor thread and feature windows, tap
+ * history and enrollment progress, templates, and the inference scheduler with its model.
+ *
+ * One instance lives in {@link CAuthNetApplication}, so recreating the activity, for example on
+ * rotation, keeps the loaded model, the windows and a half-finished enrollment. The lifecycle
+ * is explicit: {@link #start()} starts the sensor thread and loads the model, {@link #resume()}
+ * and {@link #pause()} register and unregister the sensors, and {@link #close()} releases
+ * everything for good. Results go to the attached {@link Listener}, if any, on the main
+ * thread. Apart from the sensor callbacks, every method must be called on the main thread.
+ */
+public class AuthEngine implements SensorEventListener {
+
+    private static final String TAG = "SensorStats";
+    private static final String PREFS_NAME = "UserPreferences";
+    private static final String BACKEND_KEY = "InferenceBackend";
+    private static final String ENROLLED_EMBEDDING_KEY = "EnrolledEmbedding";
+    private static final String TEMPLATE_FILE = "enrolled_template.bin";
+    private static final int MAX_TEMPLATES_PER_USER = 5;
+    private static final float MATCH_THRESHOLD = 0.7f;
+
+    // Passive mode: score overlapping windows at most this often and smooth the result
+    private static final long PASSIVE_INTERVAL_MS = 1000;
+    private static final float PASSIVE_ACCEPT_DISTANCE = 0.5f;
+    private static final float PASSIVE_REJECT_DISTANCE = 1.0f;
+    private static final float PASSIVE_TRUST_SMOOTHING = 0.2f;
+
+    public static final int ENROLLMENT_TAPS = 20;
+    private static final int FEATURE_WINDOW_SIZE = 10;
+    // Taps averaged per authentication; averaging cost does not depend on it
+    private static final int HISTORY_LENGTH = 20;
+    // Sensors are resampled onto a 5 Hz grid, the SENSOR_DELAY_NORMAL rate the model was trained at
+    private static final long FRAME_PERIOD_NS = 200_000_000L;
+    // Raw samples kept per sensor while waiting for the others; covers a 1 s FIFO batch at 200 Hz
+    private static final int RAW_SAMPLE_CAPACITY = 256;
+    // Frames go on without a sensor that lags the others this long, e.g. one the device lacks;
+    // well above the 1 s FIFO batch so batching skew never trips it
+    private static final long SENSOR_SILENCE_MS = 2000;
+    // Raw samples queued between the sensor thread and the main thread; about 4 s at 200 Hz
+    private static final int SAMPLE_RING_CAPACITY = 2048;
+    // How often the main thread takes queued samples when no tap asks for them sooner
+    private static final long DRAIN_INTERVAL_MS = 50;
+    // Duty cycling: after IDLE_AFTER_MS of stillness only the accelerometer stays on, and passive
+    // scoring pauses. Idle sampling is just fast enough, counting the drain, to notice motion and
+    // bring everything back within WAKE_LATENCY_MS. Variances are of the magnitude, in (m/s^2)^2
+    private static final float STILL_VARIANCE = 0.005f;
+    private static final float MOTION_VARIANCE = 0.02f;
+    private static final long IDLE_AFTER_MS = 5000;
+    private static final long WAKE_LATENCY_MS = 250;
+    private static final long MOTION_SMOOTHING_MS = 1000;
+    private static final int IDLE_PERIOD_US = (int) (WAKE_LATENCY_MS - DRAIN_INTERVAL_MS) * 1000;
+    private static final SensorAcquisitionConfig IDLE_SAMPLING = new SensorAcquisitionConfig(
+            "Idle (accelerometer only)", IDLE_PERIOD_US, IDLE_PERIOD_US, IDLE_PERIOD_US, 0);
+    private static final int INFERENCE_QUEUE_CAPACITY = 4;
+    private static final int MODEL_WARMUP_PASSES = 3;
+    private static final String MODEL_ASSET = "model_scripted.pt";
+    // Weights exported from MODEL_ASSET by tools/export_weights.py
+    private static final String WEIGHTS_ASSET = "model_weights.bin";
+    private static final int MAX_INFERENCE_BATCH = 32;
+    private static final String SESSION_DIR = "sessions";
+    private static final int SESSION_CHUNK_EVENTS = 4096;
+    // Embed every enrollment sample in one batched pass and average the embeddings, instead of
+    // embedding the averaged features
+    private static final boolean BATCHED_ENROLLMENT = true;
+    // From MIN_ENROLLMENT_TAPS on, enrollment ends early once the standard error of the template,
+    // the mean of the tap embeddings, falls below ENROLLMENT_STANDARD_ERROR; needs BATCHED_ENROLLMENT
+    private static final int MIN_ENROLLMENT_TAPS = 8;
+    private static final float ENROLLMENT_STANDARD_ERROR = 0.05f;
+    // Score each tap on its own and decide with a sequential test as soon as the evidence is clear,
+    // instead of one distance per tap from the averaged history
+    private static final boolean SEQUENTIAL_AUTHENTICATION = true;
+    // Single-tap distance distributions for the sequential test; refit with cauthnet-eval --sequential
+    private static final float GENUINE_DISTANCE_MEAN = 0.45f;
+    private static final float GENUINE_DISTANCE_SIGMA = 0.15f;
+    private static final float IMPOSTOR_DISTANCE_MEAN = 0.95f;
+    private static final float IMPOSTOR_DISTANCE_SIGMA = 0.2f;
+    private static final float SEQUENTIAL_FALSE_ACCEPT = 0.01f;
+    private static final float SEQUENTIAL_FALSE_REJECT = 0.05f;
+    private static final int SEQUENTIAL_MAX_TAPS = 10;
+    // Template adaptation: an accepted tap well inside the genuine distances, and clearly nearer
+    // its own user than anyone else, nudges the matched template toward it, at most every
+    // ADAPT_INTERVAL_MS per user. The file is rewritten in the background
+    private static final float ADAPT_MAX_DISTANCE = 0.35f;
+    private static final float ADAPT_MARGIN = 0.3f;
+    private static final float ADAPT_RATE = 0.05f;
+    private static final long ADAPT_INTERVAL_MS = 10 * 60 * 1000;
+
+    // Chosen from the menu and kept in the preferences, so each device class can use what suits it
+    public enum Backend {
+        PYTORCH("PyTorch, float32"),
+        JAVA("Java, float32"),
+        // Also stores templates as int8 and matches them in integer arithmetic
+        INT8("Java, int8");
+
+        public final String title;
+
+        Backend(String title) {
+            this.title = title;
+        }
+    }
+
+    public interface Listener {
+        void onModelStateChanged(InferenceScheduler.State state);
+
+        // saved is false if the embedding could not be computed or stored
+        void onEnrollmentFinished(boolean saved, int taps);
+
+        // match is null when nobody is enrolled yet; windows counts the taps behind the outcome
+        void onAuthenticated(TemplateIndex.Match match, SequentialDecision.Outcome outcome, int windows);
+
+        void onAuthenticationFailed();
+
+        void onTrustUpdated(float trust, TemplateIndex.Match match);
+    }
+
+    private final Context context;
+    private final SharedPreferences preferences;
+    private final SensorManager sensorManager;
+    private final Sensor[] sensors = new Sensor[SensorWindowStore.SENSOR_COUNT];
+    private final Sensor[] idleSensors = new Sensor[SensorWindowStore.SENSOR_COUNT];
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private SensorAcquisitionConfig sensorConfig = SensorAcquisitionConfig.NORMAL;
+    private HandlerThread sensorThread;  // Sensor events are delivered here and only queued
+    private Handler sensorHandler;
+    private boolean started;
+    private boolean sensing;
+
+    private final SensorWindowStore sensorWindows = new SensorWindowStore(FEATURE_WINDOW_SIZE);
+    private final float[] tapStatistics = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+    private final FrameAligner frameAligner = new FrameAligner(FRAME_PERIOD_NS, RAW_SAMPLE_CAPACITY,
+            2 * FEATURE_WINDOW_SIZE, SENSOR_SILENCE_MS * 1_000_000L, this::onFrame);
+    // Written by the sensor thread, read by the main thread, which owns everything downstream
+    private final SampleRing samples = new SampleRing(SAMPLE_RING_CAPACITY);
+    private final SampleRing.Consumer onSample = this::onSample;
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drainSamples();
+            mainHandler.postDelayed(this, DRAIN_INTERVAL_MS);
+        }
+    };
+    private final MotionDutyCycler dutyCycler = new MotionDutyCycler(STILL_VARIANCE, MOTION_VARIANCE,
+            IDLE_AFTER_MS * 1_000_000L, MOTION_SMOOTHING_MS * 1_000_000L);
+    private boolean dutyCycleChanged;
+    private long eventsReceived;
+
+    // Feature vectors of the latest taps; enrollment fills it, authentication keeps rolling it
+    private final HistoryRing history = new HistoryRing(Math.max(HISTORY_LENGTH, ENROLLMENT_TAPS),
+            StreamingFeatureExtractor.FEATURE_COUNT, true);
+    private float[] averageStatistics;
+    private boolean isEnrolling = false;
+    private int enrollmentCount = 0;
+    private String enrollingUser = TemplateStore.DEFAULT_USER;
+    // Bumped per enrollment, so a convergence check from an earlier one is ignored
+    private int enrollmentSession;
+    private final SequentialDecision decision = new SequentialDecision(GENUINE_DISTANCE_MEAN,
+            GENUINE_DISTANCE_SIGMA, IMPOSTOR_DISTANCE_MEAN, IMPOSTOR_DISTANCE_SIGMA,
+            SEQUENTIAL_FALSE_ACCEPT, SEQUENTIAL_FALSE_REJECT, SEQUENTIAL_MAX_TAPS);
+    private String claimedUser;  // Nearest user on the first tap of the current sequence
+    private int authenticationTaps;  // Gives each sequential tap its own inference request
+    private final TemplateAdapter templateAdapter = new TemplateAdapter(ADAPT_MAX_DISTANCE, ADAPT_MARGIN,
+            ADAPT_RATE, ADAPT_INTERVAL_MS * 1_000_000L);
+
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final InferenceScheduler inferenceScheduler;  // Owns the embedding backend on its worker thread
+    private Backend backend = Backend.PYTORCH;
+    private final PassiveAuthenticator passiveAuthenticator;
+    private boolean passiveEnabled;
+    private TemplateStore templateStore;  // Reads the template file once, not on every authentication
+    private SessionRecorder sessionRecorder;  // Non-null while a session is being recorded
+    private Listener listener;
+
+    public AuthEngine(Context context) {
+        this.context = context.getApplicationContext();
+        preferences = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        sensorManager = (SensorManager) this.context.getSystemService(Context.SENSOR_SERVICE);
+        sensors[SensorWindowStore.SENSOR_ACCEL] = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        sensors[SensorWindowStore.SENSOR_GYRO] = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        sensors[SensorWindowStore.SENSOR_MAG] = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
+        idleSensors[SensorWindowStore.SENSOR_ACCEL] = sensors[SensorWindowStore.SENSOR_ACCEL];
+
+        inferenceScheduler = new InferenceScheduler(mainHandler::post, INFERENCE_QUEUE_CAPACITY);
+        inferenceScheduler.setForwardLatency(metrics.get(PipelineMetrics.Stage.FORWARD));
+        passiveAuthenticator = new PassiveAuthenticator(inferenceScheduler, mainHandler, this::loadMatcher,
+                this::onTrustUpdated, FEATURE_WINDOW_SIZE, PASSIVE_INTERVAL_MS,
+                PASSIVE_ACCEPT_DISTANCE, PASSIVE_REJECT_DISTANCE, PASSIVE_TRUST_SMOOTHING);
+        try {
+            backend = Backend.valueOf(preferences.getString(BACKEND_KEY, Backend.PYTORCH.name()));
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Unknown backend in preferences, using " + backend);
+        }
+        dropLegacyEmbedding();
+    }
+
+    // Starts the sensor thread and loads the model off the main thread; taps made meanwhile are queued
+    public void start() {
+        if (started) return;
+        started = true;
+        sensorThread = new HandlerThread("sensors", Process.THREAD_PRIORITY_DISPLAY);
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+        Backend selected = backend;
+        inferenceScheduler.loadModel(() -> loadBackend(selected), MODEL_WARMUP_PASSES, this::onModelStateChanged);
+    }
+
+    // Stops sensing, finishes any recording and releases the model; the engine cannot be restarted
+    public void close() {
+        pause();
+        try {
+            stopRecording();
+        } catch (IOException e) {
+            Log.e(TAG, "Error finishing session recording", e);
+        }
+        closeTemplates();
+        inferenceScheduler.shutdown();
+        if (sensorThread != null) {
+            sensorThread.quitSafely();
+        }
+    }
+
+    // At most one listener; pass null when the activity goes away
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void resume() {
+        if (sensing) return;
+        sensing = true;
+        dutyCycler.reset();
+        passiveAuthenticator.setSuspended(false);
+        registerSensors();
+        mainHandler.postDelayed(drainTask, DRAIN_INTERVAL_MS);
+        if (passiveEnabled) {
+            passiveAuthenticator.start();
+        }
+    }
+
+    public void pause() {
+        if (!sensing) return;
+        sensing = false;
+        sensorManager.unregisterListener(this);
+        mainHandler.removeCallbacks(drainTask);
+        drainSamples();  // So a recording keeps the last samples
+        passiveAuthenticator.stop();
+    }
+
+    public boolean isModelReady() {
+        return inferenceScheduler.isReady();
+    }
+
+    public SensorAcquisitionConfig getSensorConfig() {
+        return sensorConfig;
+    }
+
+    public void setSensorConfig(SensorAcquisitionConfig config) {
+        sensorConfig = config;
+        // Windows must not mix samples taken at different rates
+        if (sensing) {
+            sensorManager.unregisterListener(this);
+        }
+        resetWindows();
+        if (sensing) {
+            registerSensors();
+        }
+    }
+
+    private void registerSensors() {
+        // Samples still queued from an earlier registration must not reach the reset aligner
+        samples.clear();
+        frameAligner.reset();
+        SensorAcquisitionConfig config = sensorConfig;
+        boolean registered;
+        if (dutyCycler.getState() == MotionDutyCycler.State.IDLE) {
+            config = IDLE_SAMPLING;
+            registered = config.register(sensorManager, this, idleSensors, sensorHandler);
+        } else {
+            registered = config.register(sensorManager, this, sensors, sensorHandler);
+        }
+        if (!registered) {
+            Log.w(TAG, "Some sensors rejected sampling config " + config);
+        }
+    }
+
+    // Runs between drains, since re-registering clears the ring
+    private void applyDutyCycle() {
+        boolean idle = dutyCycler.getState() == MotionDutyCycler.State.IDLE;
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, (idle ? "Device still" : "Motion detected") + ", variance " + dutyCycler.getVariance());
+        }
+        if (idle) {
+            // No frames arrive while idle; a tap after waking must not see the ones from before
+            resetWindows();
+        }
+        passiveAuthenticator.setSuspended(idle);
+        if (sensing) {
+            sensorManager.unregisterListener(this);
+            registerSensors();
+        }
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void selectBackend(Backend choice) {
+        if (choice == backend) return;
+        backend = choice;
+        preferences.edit().putString(BACKEND_KEY, choice.name()).apply();
+
+        // Rewrite the templates in the new precision; leaving int8 keeps the quantized values
+        closeTemplates();
+        TemplateIndex templates = loadTemplates();
+        if (templates != null && !templates.isEmpty()) {
+            try {
+                templateStore().save(templates);
+            } catch (IOException e) {
+                Log.e(TAG, "Error converting templates", e);
+            }
+        }
+        // Latencies of the previous backend would otherwise be mixed into the new ones
+        metrics.reset();
+        resetDecision();
+        inferenceScheduler.loadModel(() -> loadBackend(choice), MODEL_WARMUP_PASSES, this::onModelStateChanged);
+    }
+
+    // Per-stage latency table; also written to the log so it can be collected with adb
+    public String dumpLatencies() {
+        String dump = metrics.dump();
+        dump += String.format(Locale.US, "\nsensor ring: %d samples, %d overruns, max backlog %d of %d",
+                samples.published(), samples.overruns(), samples.maxBacklog(), samples.capacity());
+        dump += "\ninference: " + inferenceScheduler.getRequestsReplaced() + " queued requests replaced by newer ones";
+        long elapsedNanos = dutyCycler.getActiveNanos() + dutyCycler.getIdleNanos();
+        dump += String.format(Locale.US, "\nduty cycle: %s, active %.1f s, idle %.1f s, %d wake-ups, "
+                        + "%.1f events/s (%.1f at full rate), %d passive inferences skipped",
+                dutyCycler.getState(), dutyCycler.getActiveNanos() / 1e9, dutyCycler.getIdleNanos() / 1e9,
+                dutyCycler.getWakeUps(), elapsedNanos > 0 ? eventsReceived * 1e9 / elapsedNanos : 0,
+                sensorConfig.getEventRate(), passiveAuthenticator.getWindowsSkipped());
+        dump += String.format(Locale.US, "\ntemplate adaptation: %d updated, %d not confident, "
+                        + "%d ambiguous, %d rate limited",
+                templateAdapter.getCount(TemplateAdapter.Result.UPDATED),
+                templateAdapter.getCount(TemplateAdapter.Result.NOT_CONFIDENT),
+                templateAdapter.getCount(TemplateAdapter.Result.AMBIGUOUS),
+                templateAdapter.getCount(TemplateAdapter.Result.RATE_LIMITED));
+        Log.i(TAG, "Authentication latencies (" + backend.title + "):\n" + dump);
+        return dump;
+    }
+
+    public void resetLatencies() {
+        metrics.reset();
+    }
+
+    public boolean isPassiveEnabled() {
+        return passiveEnabled;
+    }
+
+    // Remembered across pause and resume; scoring only runs while the sensors are registered
+    public void setPassiveEnabled(boolean enabled) {
+        passiveEnabled = enabled;
+        if (enabled && sensing) {
+            passiveAuthenticator.start();
+        } else {
+            passiveAuthenticator.stop();
+        }
+    }
+
+    public boolean isRecording() {
+        return sessionRecorder != null;
+    }
+
+    // Starts recording raw events and taps to a new file in the sessions directory
+    public File startRecording(String label) throws IOException {
+        File dir = new File(context.getFilesDir(), SESSION_DIR);
+        File file = new File(dir, "session-" + System.currentTimeMillis() + ".bin");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        sessionRecorder = new SessionRecorder(file, label, SESSION_CHUNK_EVENTS);
+        return file;
+    }
+
+    public void stopRecording() throws IOException {
+        if (sessionRecorder == null) return;
+        drainSamples();
+        SessionRecorder recorder = sessionRecorder;
+        sessionRecorder = null;
+        recorder.close();
+        Log.d(TAG, "Session recorded, " + recorder.getEventsDropped() + " events dropped");
+    }
+
+    // Sensor thread: only queues the sample, so a busy main thread cannot delay delivery
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        int sensor;
+        switch (event.sensor.getType()) {
+            case Sensor.TYPE_ACCELEROMETER:
+                sensor = SensorWindowStore.SENSOR_ACCEL;
+                break;
+            case Sensor.TYPE_GYROSCOPE:
+                sensor = SensorWindowStore.SENSOR_GYRO;
+                break;
+            case Sensor.TYPE_MAGNETIC_FIELD:
+                sensor = SensorWindowStore.SENSOR_MAG;
+                break;
+            default:
+                return;
+        }
+
+        // A full ring drops the sample and counts it; the frame aligner interpolates over the gap
+        samples.offer(sensor, event.timestamp, event.values[0], event.values[1], event.values[2]);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Handle changes in sensor accuracy if needed
+    }
+
+    private void drainSamples() {
+        samples.drain(onSample);
+        if (dutyCycleChanged) {
+            dutyCycleChanged = false;
+            applyDutyCycle();
+        }
+    }
+
+    private void onSample(int sensor, long timestampNanos, float x, float y, float z) {
+        eventsReceived++;
+        if (sensor == SensorWindowStore.SENSOR_ACCEL && dutyCycler.onAccel(timestampNanos, x, y, z)) {
+            dutyCycleChanged = true;
+        }
+        // Raw events only feed the aligner; everything downstream sees time-aligned frames. While
+        // idle only the accelerometer reports, at a low rate, and only for the duty cycler
+        if (dutyCycler.getState() == MotionDutyCycler.State.ACTIVE) {
+            frameAligner.add(sensor, timestampNanos, x, y, z);
+        }
+        if (sessionRecorder != null) {
+            sessionRecorder.record(sensor, timestampNanos, x, y, z);
+        }
+    }
+
+    private void onFrame(long timestampNanos, float[] frames, int offset) {
+        sensorWindows.addFrame(timestampNanos, frames, offset);
+        passiveAuthenticator.onFrame(frames, offset);
+    }
+
+    // Runs on the inference worker
+    private EmbeddingBackend loadBackend(Backend choice) throws IOException {
+        if (choice != Backend.PYTORCH) {
+            MlpWeights weights;
+            try (InputStream in = context.getAssets().open(WEIGHTS_ASSET)) {
+                weights = MlpWeights.read(in);
+            }
+            if (choice == Backend.INT8) {
+                QuantizedMlpBackend quantized = new QuantizedMlpBackend(weights, MAX_INFERENCE_BATCH);
+                Log.i(TAG, "int8 backend: " + quantized.parameterBytes() + " parameter bytes, float "
+                        + weights.parameterBytes());
+                return quantized;
+            }
+            Log.i(TAG, "Java backend: " + weights.parameterBytes() + " parameter bytes");
+            return new MlpBackend(weights, MAX_INFERENCE_BATCH);
+        }
+        ModelAssetCache modelCache = new ModelAssetCache(context, MODEL_ASSET, ModelAssetCache.appVersion(context));
+        return new PyTorchBackend(Module.load(modelCache.resolve().getAbsolutePath()), MAX_INFERENCE_BATCH);
+    }
+
+    private void onModelStateChanged(InferenceScheduler.State state) {
+        Log.d(TAG, "Model state: " + state);
+        if (listener != null) {
+            listener.onModelStateChanged(state);
+        }
+    }
+
+    private void onTrustUpdated(float trust, TemplateIndex.Match match) {
+        if (listener != null) {
+            listener.onTrustUpdated(trust, match);
+        }
+    }
+
+    public boolean isEnrolling() {
+        return isEnrolling;
+    }
+
+    public int getEnrollmentCount() {
+        return enrollmentCount;
+    }
+
+    public void beginEnrollment(String user) {
+        enrollingUser = user.isEmpty() ? TemplateStore.DEFAULT_USER : user;
+        isEnrolling = true;
+        enrollmentCount = 0;
+        enrollmentSession++;
+        history.clear();
+    }
+
+    public void beginAuthentication() {
+        isEnrolling = false;
+        resetDecision();
+    }
+
+    /**
+     * Call before {@link #enrollTap()} or {@link #authenticate()}. Takes the queued samples and
+     * wakes the sensors if the device was idle. Returns false while the before-tap window does
+     * not yet hold a full window of fresh frames, as right after an idle period; the tap should
+     * then be retried in a moment rather than scored on too little data.
+     */
+    public boolean prepareTap() {
+        drainSamples();
+        wake();
+        return sensorWindows.before(SensorWindowStore.SENSOR_ACCEL).size() == FEATURE_WINDOW_SIZE;
+    }
+
+    // Adds this tap's features to the enrollment and returns how many taps have been taken
+    public int enrollTap() {
+        markTap(SessionRecorder.TAP_ENROLL);
+
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            calculateAndPrintStatistics();
+        }
+        history.add(createStatisticsArray(), 0);
+        averageStatistics = history.average();
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Average Statistics: " + Arrays.toString(averageStatistics));
+        }
+
+        enrollmentCount++;
+        resetWindows();
+        if (BATCHED_ENROLLMENT && enrollmentCount >= MIN_ENROLLMENT_TAPS && enrollmentCount < ENROLLMENT_TAPS) {
+            checkEnrollmentConvergence();
+        }
+        return enrollmentCount;
+    }
+
+    // Embeds the taps so far and finishes the enrollment if their mean is already stable
+    private void checkEnrollmentConvergence() {
+        int taps = history.size();
+        int session = enrollmentSession;
+        inferenceScheduler.submitBatch("enroll", stackStatistics(), taps, new InferenceScheduler.Callback() {
+            @Override
+            public void onResult(float[] embeddings) {
+                if (!isEnrolling || session != enrollmentSession) return;
+                float error = FeatureMath.standardError(embeddings, taps, EmbeddingBackend.EMBEDDING_SIZE);
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "Template standard error after " + taps + " taps: " + error);
+                }
+                if (error < ENROLLMENT_STANDARD_ERROR) {
+                    isEnrolling = false;
+                    saveEnrollment(embeddings, taps);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // Enrollment simply continues to the full tap count
+            }
+        });
+    }
+
+    // Embeds the enrollment taps and saves the template; false if the model is busy
+    public boolean finishEnrollment() {
+        isEnrolling = false;
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Average Statistics after enrolment: " + Arrays.toString(averageStatistics));
+        }
+
+        InferenceScheduler.Callback onEnrolled = new InferenceScheduler.Callback() {
+            @Override
+            public void onResult(float[] embeddings) {
+                saveEnrollment(embeddings, history.size());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (listener != null) {
+                    listener.onEnrollmentFinished(false, history.size());
+                }
+            }
+        };
+        if (BATCHED_ENROLLMENT) {
+            return inferenceScheduler.submitBatch("enroll", stackStatistics(), history.size(), onEnrolled);
+        }
+        return inferenceScheduler.submit("enroll", averageStatistics, onEnrolled);
+    }
+
+    // embeddings holds one row per tap when batched, otherwise the embedding of the averaged taps
+    private void saveEnrollment(float[] embeddings, int taps) {
+        float[] enrolledEmbedding = BATCHED_ENROLLMENT
+                ? FeatureMath.averageEmbedding(embeddings,
+                        embeddings.length / EmbeddingBackend.EMBEDDING_SIZE, EmbeddingBackend.EMBEDDING_SIZE)
+                : embeddings;
+        boolean saved = saveEnrolledEmbedding(enrollingUser, enrolledEmbedding);
+        Log.i(TAG, "Enrolled " + enrollingUser + " from " + taps + " taps");
+        if (listener != null) {
+            listener.onEnrollmentFinished(saved, taps);
+        }
+    }
+
+    // Scores this tap together with the previous ones; false if the model is busy
+    public boolean authenticate() {
+        long tapStart = System.nanoTime();
+        markTap(SessionRecorder.TAP_AUTHENTICATE);
+        long stageStart = System.nanoTime();
+        metrics.recordSince(PipelineMetrics.Stage.CAPTURE, tapStart);
+        float[] newStatistics = createStatisticsArray();
+        metrics.recordSince(PipelineMetrics.Stage.FEATURES, stageStart);
+
+        stageStart = System.nanoTime();
+        history.add(newStatistics, 0);  // Evicts the oldest entry once full
+        averageStatistics = history.average();
+        metrics.recordSince(PipelineMetrics.Stage.AVERAGE, stageStart);
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Average Statistics in Authentication: " + Arrays.toString(averageStatistics));
+        }
+        resetWindows();
+        // The sequential test needs each tap on its own; copied since the buffer is reused
+        float[] input = SEQUENTIAL_AUTHENTICATION ? newStatistics.clone() : averageStatistics;
+
+        // Averaged taps arriving while a previous one is still queued replace it, since the newer
+        // average covers it; sequential taps are each evidence on their own, so every one is scored
+        String key = SEQUENTIAL_AUTHENTICATION ? "authenticate-" + authenticationTaps++ : "authenticate";
+        long submitStart = System.nanoTime();
+        return inferenceScheduler.submit(key, input, new InferenceScheduler.Callback() {
+            @Override
+            public void onResult(float[] authenEmbedding) {
+                metrics.recordSince(PipelineMetrics.Stage.INFERENCE, submitStart);
+                onAuthenticationEmbedding(authenEmbedding);
+                metrics.recordSince(PipelineMetrics.Stage.TOTAL, tapStart);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (listener != null) {
+                    listener.onAuthenticationFailed();
+                }
+            }
+        });
+    }
+
+    private void onAuthenticationEmbedding(float[] authenEmbedding) {
+        long stageStart = System.nanoTime();
+        TemplateMatcher templates = loadMatcher();
+        metrics.recordSince(PipelineMetrics.Stage.TEMPLATE_LOAD, stageStart);
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "authenEmbedding: " + Arrays.toString(authenEmbedding));
+        }
+        if (templates == null || templates.isEmpty()) {
+            if (listener != null) {
+                listener.onAuthenticated(null, SequentialDecision.Outcome.REJECT, 0);
+            }
+            return;
+        }
+
+        stageStart = System.nanoTime();
+        // Later taps of a sequence are scored against the user the first one pointed at
+        TemplateIndex.Match match = null;
+        if (SEQUENTIAL_AUTHENTICATION && claimedUser != null) {
+            match = templates.nearestOf(authenEmbedding, claimedUser);
+        }
+        if (match == null) {
+            resetDecision();
+            match = templates.nearest(authenEmbedding);
+        }
+        metrics.recordSince(PipelineMetrics.Stage.DISTANCE, stageStart);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Distance: " + match.distance);
+        }
+
+        SequentialDecision.Outcome outcome;
+        int windows = 1;
+        if (SEQUENTIAL_AUTHENTICATION) {
+            claimedUser = match.user;
+            outcome = decision.add(match.distance);
+            windows = decision.getWindows();
+            if (outcome != SequentialDecision.Outcome.PENDING) {
+                Log.i(TAG, String.format(Locale.US, "%s %s after %d taps, log likelihood ratio %.2f",
+                        outcome, match.user, windows, decision.getLogLikelihoodRatio()));
+                resetDecision();
+            }
+        } else {
+            outcome = match.distance < MATCH_THRESHOLD
+                    ? SequentialDecision.Outcome.ACCEPT : SequentialDecision.Outcome.REJECT;
+        }
+        if (listener != null) {
+            listener.onAuthenticated(match, outcome, windows);
+        }
+        if (outcome == SequentialDecision.Outcome.ACCEPT) {
+            adaptTemplate(match, authenEmbedding);
+        }
+    }
+
+    // Folds a confidently accepted tap into the matched template; the disk write happens in the background
+    private void adaptTemplate(TemplateIndex.Match match, float[] embedding) {
+        TemplateIndex templates = loadTemplates();
+        if (templates == null) return;
+        TemplateAdapter.Result result = templateAdapter.adapt(templates, match, embedding,
+                SystemClock.elapsedRealtimeNanos());
+        if (result != TemplateAdapter.Result.UPDATED) {
+            Log.d(TAG, "Template of " + match.user + " not adapted: " + result);
+            return;
+        }
+        try {
+            templateStore().saveAsync(templates);
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving adapted template", e);
+        }
+    }
+
+    // Waits for background template writes, reports any that failed and drops the store
+    private void closeTemplates() {
+        if (templateStore == null) return;
+        try {
+            templateStore.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing adapted template", e);
+        }
+        templateStore = null;
+    }
+
+    private void resetDecision() {
+        decision.reset();
+        claimedUser = null;
+    }
+
+    private TemplateStore templateStore() {
+        if (templateStore == null) {
+            templateStore = new TemplateStore(new File(context.getFilesDir(), TEMPLATE_FILE),
+                    EmbeddingBackend.EMBEDDING_SIZE, backend == Backend.INT8);
+        }
+        return templateStore;
+    }
+
+    // Adds a template for the user, keeping only their most recent MAX_TEMPLATES_PER_USER
+    private boolean saveEnrolledEmbedding(String user, float[] embedding) {
+        try {
+            TemplateIndex templates = templateStore().load();
+            templates.add(user, embedding);
+            templates.trimUser(user, MAX_TEMPLATES_PER_USER);
+            templateStore().save(templates);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving enrolled embedding", e);
+            return false;
+        }
+    }
+
+    private TemplateIndex loadTemplates() {
+        try {
+            return templateStore().load();
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading enrolled embedding", e);
+            return null;
+        }
+    }
+
+    // Templates in the form the current backend matches against
+    private TemplateMatcher loadMatcher() {
+        TemplateIndex templates = loadTemplates();
+        if (templates == null || backend != Backend.INT8) {
+            return templates;
+        }
+        try {
+            return templateStore().loadQuantized();
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading enrolled embedding", e);
+            return null;
+        }
+    }
+
+    /**
+     * Earlier versions kept the template as Arrays.toString text in SharedPreferences. That text
+     * has no checksum or recorded length, so it is discarded rather than imported and the user
+     * has to enroll again.
+     */
+    private void dropLegacyEmbedding() {
+        if (!preferences.contains(ENROLLED_EMBEDDING_KEY)) {
+            return;
+        }
+        Log.w(TAG, "Discarding template from an earlier version; enroll again to authenticate");
+        preferences.edit().remove(ENROLLED_EMBEDDING_KEY).apply();
+    }
+
+    private void calculateAndPrintStatistics() {
+        printStatistics("Accelerometer", SensorWindowStore.SENSOR_ACCEL);
+        printStatistics("Gyroscope", SensorWindowStore.SENSOR_GYRO);
+        printStatistics("Magnetometer", SensorWindowStore.SENSOR_MAG);
+    }
+
+    private void printStatistics(String sensorType, int sensor) {
+        SensorWindowStore.Window dataBefore = sensorWindows.before(sensor);
+        SensorWindowStore.Window dataAfter = sensorWindows.after(sensor);
+        // Before block, after block, then differences; X, Y, Z, M each with mean, std, min, max
+        float[] stats = new float[StreamingFeatureExtractor.FEATURES_PER_SENSOR];
+        FeatureKernel.computeSensor(dataBefore, dataAfter, stats, 0);
+
+        Log.d(TAG, String.format(Locale.US, "%s window span: %.0f ms before, %.0f ms after (nominal %.0f ms)",
+                sensorType, dataBefore.spanNanos() / 1e6, dataAfter.spanNanos() / 1e6,
+                (FEATURE_WINDOW_SIZE - 1) * FRAME_PERIOD_NS / 1e6));
+        String[] blocks = {" Statistics Before Button Click:", " Statistics After Button Click:", " Statistics Differences:"};
+        String[] labels = {"Mean", "StdDev", "Min", "Max"};
+        for (int block = 0; block < blocks.length; block++) {
+            Log.d(TAG, sensorType + blocks[block]);
+            for (int stat = 0; stat < labels.length; stat++) {
+                int o = block * 16 + stat;
+                Log.d(TAG, labels[stat] + (block == 2 ? " Difference" : "") + ": X=" + stats[o] + ", Y=" + stats[o + 4]
+                        + ", Z=" + stats[o + 8] + ", M=" + stats[o + 12]);
+            }
+        }
+    }
+
+    private void markTap(int tapKind) {
+        // Every sample the sensor thread published before the tap lands before the marker
+        drainSamples();
+        wake();
+        sensorWindows.markTap();
+        if (sessionRecorder != null) {
+            // Same clock as SensorEvent.timestamp
+            sessionRecorder.recordTap(SystemClock.elapsedRealtimeNanos(), tapKind);
+        }
+    }
+
+    // Someone is using the device even if it has not moved
+    private void wake() {
+        if (dutyCycler.getState() == MotionDutyCycler.State.IDLE) {
+            dutyCycler.wake();
+            applyDutyCycle();
+        }
+    }
+
+    private void resetWindows() {
+        sensorWindows.reset();
+    }
+
+    // Returns a shared buffer, valid until the next tap
+    private float[] createStatisticsArray() {
+        // One pass over each ten-sample window
+        float[] statistics = tapStatistics;
+        FeatureKernel.compute(sensorWindows, statistics, 0);
+
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Statistics Array: " + Arrays.toString(statistics));
+        }
+
+        return statistics;
+    }
+
+    // Lays the statistics arrays out back to back, as a [N, 144] batch
+    private float[] stackStatistics() {
+        float[] stacked = new float[history.size() * StreamingFeatureExtractor.FEATURE_COUNT];
+        history.copyRows(stacked, 0);
+        return stacked;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cauthnet;
+
+import android.app.Application;
+
+/**
+ * Creates the process-wide {@link AuthEngine} and starts it, so the model starts loading at
+ * process start and is loaded at most once per process.
+ */
+public class CAuthNetApplication extends Application {
+
+    private AuthEngine engine;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        engine = new AuthEngine(this);
+        engine.start();
+    }
+
+    public AuthEngine getEngine() {
+        return engine;
+    }
+}
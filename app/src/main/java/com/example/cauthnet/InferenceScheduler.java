@@ -0,0 +1,246 @@
+package com.example.cauthnet;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs model inference on a single long-lived worker thread that owns the model.
+ *
+ * Requests are keyed: submitting while a request with the same key is still queued replaces
+ * its input and callback instead of queueing another forward pass, so repeated taps collapse
+ * into one. Callers that need every request to run give each one its own key. Replaced
+ * requests are logged and counted. Results are delivered through the executor given at
+ * construction, typically the main thread.
+ *
+ * The model is loaded and warmed up on the worker itself, so requests submitted while it is
+ * still {@link State#LOADING} or {@link State#WARMING_UP} simply queue behind the load.
+ */
+public class InferenceScheduler {
+
+    private static final String TAG = "InferenceScheduler";
+
+    public enum State {
+        IDLE,
+        LOADING,
+        WARMING_UP,
+        READY,
+        FAILED
+    }
+
+    public interface Callback {
+        void onResult(float[] embedding);
+
+        void onError(Exception e);
+    }
+
+    public interface StateListener {
+        void onStateChanged(State state);
+    }
+
+    private final ThreadPoolExecutor worker;
+    private final Executor resultExecutor;
+    private final Map<String, Request> pending = new HashMap<>();
+    private volatile boolean closed;
+    private volatile int requestsReplaced;
+    private volatile State state = State.IDLE;
+    private volatile LatencyHistogram forwardLatency;
+
+    // Only touched on the worker thread
+    private EmbeddingBackend model;
+
+    public InferenceScheduler(Executor resultExecutor, int maxQueuedRequests) {
+        this.resultExecutor = resultExecutor;
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(maxQueuedRequests),
+                runnable -> new Thread(runnable, "inference"));
+    }
+
+    // Requests that never ran because a newer one with the same key replaced them
+    public int getRequestsReplaced() {
+        return requestsReplaced;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    // Records the duration of every forward pass, measured on the worker; null to stop
+    public void setForwardLatency(LatencyHistogram histogram) {
+        forwardLatency = histogram;
+    }
+
+    /**
+     * Loads the model on the worker and runs {@code warmupPasses} forward passes on a dummy input
+     * so the first real request does not pay the one-off runtime setup. Every state change is
+     * reported to {@code listener} on the result executor. Calling it again releases the current
+     * model before loading the new one. If the queue is full or the scheduler has been shut
+     * down, the load is not queued and the state becomes {@link State#FAILED}.
+     */
+    public void loadModel(Callable<EmbeddingBackend> loader, int warmupPasses, StateListener listener) {
+        updateState(State.LOADING, listener);
+        try {
+            worker.execute(() -> load(loader, warmupPasses, listener));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Inference queue full or shut down, cannot load model");
+            updateState(State.FAILED, listener);
+        }
+    }
+
+    // Worker thread
+    private void load(Callable<EmbeddingBackend> loader, int warmupPasses, StateListener listener) {
+        try {
+            if (model != null) {
+                // Switching backends; requests queued behind the load use the new one
+                model.destroy();
+                model = null;
+            }
+            EmbeddingBackend loaded = loader.call();
+            updateState(State.WARMING_UP, listener);
+            long start = System.nanoTime();
+            loaded.warmUp(warmupPasses);
+            Log.d(TAG, "Model warm-up (" + warmupPasses + " passes) took "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+            model = loaded;
+            updateState(State.READY, listener);
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading model", e);
+            updateState(State.FAILED, listener);
+        }
+    }
+
+    /**
+     * Queues a forward pass over {@code features}, which must not be modified until the callback
+     * runs. Returns false if the queue is full or the scheduler has been shut down.
+     */
+    public boolean submit(String key, float[] features, Callback callback) {
+        return submitBatch(key, features, 1, callback);
+    }
+
+    /**
+     * Queues one batched forward pass over {@code rows} feature vectors stored back to back. The
+     * callback receives the {@code rows} embeddings back to back in the same order.
+     */
+    public boolean submitBatch(String key, float[] features, int rows, Callback callback) {
+        synchronized (pending) {
+            if (closed) {
+                return false;
+            }
+            Request queued = pending.get(key);
+            if (queued != null) {
+                requestsReplaced++;
+                Log.d(TAG, "Replacing queued " + key + " with a newer request");
+                queued.features = features;
+                queued.rows = rows;
+                queued.callback = callback;
+                return true;
+            }
+            Request request = new Request(key, features, rows, callback);
+            pending.put(key, request);
+            try {
+                worker.execute(request);
+            } catch (RejectedExecutionException e) {
+                pending.remove(key);
+                Log.w(TAG, "Inference queue full, dropping " + key);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // Drops queued requests, releases the model on the worker and stops the thread
+    public void shutdown() {
+        synchronized (pending) {
+            closed = true;
+            pending.clear();
+        }
+        worker.getQueue().clear();
+        worker.execute(() -> {
+            if (model != null) {
+                model.destroy();
+                model = null;
+            }
+        });
+        worker.shutdown();
+    }
+
+    private class Request implements Runnable {
+        private final String key;
+        private float[] features;
+        private int rows;
+        private Callback callback;
+
+        Request(String key, float[] features, int rows, Callback callback) {
+            this.key = key;
+            this.features = features;
+            this.rows = rows;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            float[] input;
+            int count;
+            Callback target;
+            synchronized (pending) {
+                if (closed) {
+                    return;
+                }
+                pending.remove(key);
+                input = features;
+                count = rows;
+                target = callback;
+            }
+            try {
+                if (model == null) {
+                    throw new IllegalStateException("Model not loaded");
+                }
+                float[] embedding;
+                long start = System.nanoTime();
+                if (count == 1) {
+                    embedding = model.embed(input);
+                } else {
+                    embedding = new float[count * EmbeddingBackend.EMBEDDING_SIZE];
+                    model.embedBatch(input, count, embedding);
+                }
+                LatencyHistogram histogram = forwardLatency;
+                if (histogram != null) {
+                    histogram.recordSince(start);
+                }
+                deliver(() -> target.onResult(embedding));
+            } catch (Exception e) {
+                Log.e(TAG, "Inference failed for " + key, e);
+                deliver(() -> target.onError(e));
+            }
+        }
+    }
+
+    private void updateState(State newState, StateListener listener) {
+        state = newState;
+        if (listener != null) {
+            deliver(() -> listener.onStateChanged(newState));
+        }
+    }
+
+    private void deliver(Runnable result) {
+        if (closed) {
+            return;
+        }
+        resultExecutor.execute(() -> {
+            if (!closed) {
+                result.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.cauthnet;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import androidx.core.content.pm.PackageInfoCompat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Extracts a bundled model asset to internal storage so it can be loaded by path.
+ *
+ * The extracted copy is tracked by a small sidecar file recording the app version it was
+ * extracted for, its SHA-256 and its length. On a normal start only the sidecar and the file
+ * length are checked; the model is re-extracted (and the hash recomputed) only after an app
+ * update or when the cached copy is missing or truncated. Extraction goes to a temp file that
+ * is renamed into place, and copies left over from older versions are deleted.
+ */
+public class ModelAssetCache {
+
+    private static final String TAG = "ModelAssetCache";
+    private static final String MODEL_DIR = "models";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_SHA256 = "sha256";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_LENGTH = "length";
+
+    private final Context context;
+    private final String assetName;
+    private final long assetVersion;
+    private final File modelDir;
+    private final File metaFile;
+
+    public ModelAssetCache(Context context, String assetName, long assetVersion) {
+        this.context = context.getApplicationContext();
+        this.assetName = assetName;
+        this.assetVersion = assetVersion;
+        this.modelDir = new File(this.context.getFilesDir(), MODEL_DIR);
+        this.metaFile = new File(modelDir, assetName + ".meta");
+    }
+
+    // The bundled assets only change with the APK, so the app version code identifies them
+    public static long appVersion(Context context) {
+        try {
+            return PackageInfoCompat.getLongVersionCode(
+                    context.getPackageManager().getPackageInfo(context.getPackageName(), 0));
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    // Returns the extracted model, extracting it first if the cached copy is stale or missing
+    public File resolve() throws IOException {
+        Properties meta = readMeta();
+        File cached = cachedFile(meta);
+        if (cached != null && String.valueOf(assetVersion).equals(meta.getProperty(KEY_VERSION))) {
+            return cached;
+        }
+
+        if (!modelDir.isDirectory() && !modelDir.mkdirs()) {
+            throw new IOException("Cannot create " + modelDir);
+        }
+        File temp = new File(modelDir, assetName + ".tmp");
+        String sha256 = extractTo(temp);
+
+        File target;
+        if (cached != null && sha256.equals(meta.getProperty(KEY_SHA256))) {
+            // Same model content shipped in a newer APK; keep the existing copy
+            deleteQuietly(temp);
+            target = cached;
+        } else {
+            target = new File(modelDir, versionedName(sha256));
+            if (!temp.renameTo(target)) {
+                deleteQuietly(temp);
+                throw new IOException("Cannot move extracted model to " + target);
+            }
+            Log.d(TAG, "Extracted " + assetName + " (" + target.length() + " bytes, sha256 " + sha256 + ")");
+        }
+
+        writeMeta(target, sha256);
+        deleteObsolete(target);
+        return target;
+    }
+
+    private File cachedFile(Properties meta) {
+        String name = meta.getProperty(KEY_FILE);
+        String length = meta.getProperty(KEY_LENGTH);
+        if (name == null || length == null) {
+            return null;
+        }
+        File file = new File(modelDir, name);
+        try {
+            return file.isFile() && file.length() == Long.parseLong(length) ? file : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Copies the asset into `target` through a direct buffer, hashing it on the way
+    private String extractTo(File target) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+        try (InputStream is = context.getAssets().open(assetName);
+             ReadableByteChannel in = Channels.newChannel(is);
+             FileOutputStream fos = new FileOutputStream(target);
+             FileChannel out = fos.getChannel()) {
+            while (in.read(buffer) != -1 || buffer.position() > 0) {
+                buffer.flip();
+                buffer.mark();
+                digest.update(buffer);
+                buffer.reset();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+            out.force(true);
+        }
+        return toHex(digest.digest());
+    }
+
+    private Properties readMeta() {
+        Properties meta = new Properties();
+        if (metaFile.isFile()) {
+            try (FileInputStream in = new FileInputStream(metaFile)) {
+                meta.load(in);
+            } catch (IOException e) {
+                Log.w(TAG, "Ignoring unreadable " + metaFile, e);
+                meta.clear();
+            }
+        }
+        return meta;
+    }
+
+    private void writeMeta(File model, String sha256) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty(KEY_VERSION, String.valueOf(assetVersion));
+        meta.setProperty(KEY_SHA256, sha256);
+        meta.setProperty(KEY_FILE, model.getName());
+        meta.setProperty(KEY_LENGTH, String.valueOf(model.length()));
+
+        File temp = new File(modelDir, metaFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            meta.store(out, null);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(metaFile)) {
+            deleteQuietly(temp);
+            throw new IOException("Cannot write " + metaFile);
+        }
+    }
+
+    // Removes copies extracted for earlier versions, including the pre-cache location
+    private void deleteObsolete(File current) {
+        File[] files = modelDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.equals(current) && !file.equals(metaFile)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+        File legacy = new File(context.getFilesDir(), assetName);
+        if (legacy.isFile()) {
+            deleteQuietly(legacy);
+        }
+    }
+
+    private String versionedName(String sha256) {
+        int dot = assetName.lastIndexOf('.');
+        String base = dot > 0 ? assetName.substring(0, dot) : assetName;
+        String extension = dot > 0 ? assetName.substring(dot) : "";
+        return base + "-" + sha256.substring(0, 16) + extension;
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    private static MessageDigest sha256() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
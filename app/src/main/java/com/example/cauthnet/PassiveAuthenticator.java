@@ -0,0 +1,178 @@
+package com.example.cauthnet;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.function.Supplier;
+
+/**
+ * Scores the user continuously while the app is in use, without any button presses.
+ *
+ * Aligned sensor frames feed a {@link StreamingFeatureExtractor} that is never tapped, so at
+ * any moment the latest windowSize frames form the before-tap window and the after-tap window
+ * stays empty. That is the layout a tap snapshot has, so passive vectors come from the same
+ * feature distribution as the enrolled templates. Consecutive scores use overlapping windows.
+ * A tick on the given handler submits at most one inference per {@code intervalMs}. If the
+ * previous window is still being scored when a tick fires, the tick is dropped rather than
+ * queued, so CPU use stays bounded when inference falls behind.
+ *
+ * Each score is turned into a sample trust in [0, 1] (1 at or below {@code acceptDistance},
+ * 0 at or above {@code rejectDistance}, linear in between) and folded into an exponential
+ * moving average. While suspended, ticks skip scoring and are only counted. Must be used from
+ * the handler's thread.
+ */
+public class PassiveAuthenticator {
+
+    private static final String TAG = "PassiveAuthenticator";
+    private static final String REQUEST_KEY = "passive";
+
+    public interface Listener {
+        void onTrustUpdated(float trust, TemplateIndex.Match match);
+    }
+
+    private final InferenceScheduler scheduler;
+    private final Handler handler;
+    private final Supplier<TemplateMatcher> templates;
+    private final Listener listener;
+    private final long intervalMs;
+    private final float acceptDistance;
+    private final float rejectDistance;
+    private final float smoothing;
+
+    private final StreamingFeatureExtractor features;
+    // Only one window is ever in flight, so one buffer is enough
+    private final float[] window = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+
+    private boolean running;
+    private boolean suspended;
+    private boolean inFlight;
+    private float trust = Float.NaN;
+    private int windowsScored;
+    private int windowsDropped;
+    private int windowsSkipped;
+
+    private final InferenceScheduler.Callback onScored = new InferenceScheduler.Callback() {
+        @Override
+        public void onResult(float[] embedding) {
+            inFlight = false;
+            TemplateMatcher index = templates.get();
+            if (running && index != null && !index.isEmpty()) {
+                update(index.nearest(embedding));
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            inFlight = false;
+        }
+    };
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) return;
+            if (suspended) {
+                windowsSkipped++;
+            } else {
+                scoreLatestWindow();
+            }
+            handler.postDelayed(this, intervalMs);
+        }
+    };
+
+    public PassiveAuthenticator(InferenceScheduler scheduler, Handler handler, Supplier<TemplateMatcher> templates,
+                                Listener listener, int windowSize, long intervalMs,
+                                float acceptDistance, float rejectDistance, float smoothing) {
+        this.scheduler = scheduler;
+        this.handler = handler;
+        this.templates = templates;
+        this.listener = listener;
+        this.intervalMs = intervalMs;
+        this.acceptDistance = acceptDistance;
+        this.rejectDistance = rejectDistance;
+        this.smoothing = smoothing;
+        this.features = new StreamingFeatureExtractor(windowSize);
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        features.reset();
+        handler.postDelayed(tick, intervalMs);
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(tick);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Skips scoring without stopping, e.g. while the device lies still and nobody is using it.
+    // Frames stop meanwhile, so scoring resumes only once a full window of new ones has arrived
+    public void setSuspended(boolean suspended) {
+        if (suspended && !this.suspended) {
+            features.reset();
+        }
+        this.suspended = suspended;
+    }
+
+    public void onFrame(float[] frame, int offset) {
+        if (running) {
+            features.addFrame(frame, offset);
+        }
+    }
+
+    // Latest smoothed trust, or NaN before the first window has been scored
+    public float getTrust() {
+        return trust;
+    }
+
+    public int getWindowsScored() {
+        return windowsScored;
+    }
+
+    public int getWindowsDropped() {
+        return windowsDropped;
+    }
+
+    // Ticks that did not score because the authenticator was suspended
+    public int getWindowsSkipped() {
+        return windowsSkipped;
+    }
+
+    private void scoreLatestWindow() {
+        if (!features.isBeforeFull() || !scheduler.isReady()) {
+            return;
+        }
+        if (inFlight) {
+            windowsDropped++;
+            return;
+        }
+        TemplateMatcher index = templates.get();
+        if (index == null || index.isEmpty()) {
+            return;
+        }
+
+        features.snapshot(window, 0);
+        inFlight = scheduler.submit(REQUEST_KEY, window, onScored);
+        if (!inFlight) {
+            windowsDropped++;
+        }
+    }
+
+    private void update(TemplateIndex.Match match) {
+        if (match == null) return;
+        float sample = (rejectDistance - match.distance) / (rejectDistance - acceptDistance);
+        sample = Math.max(0, Math.min(sample, 1));
+        trust = Float.isNaN(trust) ? sample : trust + smoothing * (sample - trust);
+        windowsScored++;
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Window " + windowsScored + ": distance " + match.distance + ", trust " + trust
+                    + ", dropped " + windowsDropped);
+        }
+        listener.onTrustUpdated(trust, match);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.cauthnet;
+
+import android.util.Log;
+
+import org.pytorch.Module;
+import org.pytorch.Tensor;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Runs the scripted Siamese embedding network through PyTorch Mobile.
+ *
+ * Inputs are clamped and written directly into a pooled native buffer, so a call allocates
+ * nothing on the Java heap apart from the output tensor the runtime returns.
+ * Not thread-safe; it is owned by the {@link InferenceScheduler} worker thread.
+ */
+public class PyTorchBackend implements EmbeddingBackend {
+
+    private static final String TAG = "TensorInfo";
+
+    private final Module module;
+    private final TensorPool tensors;
+
+    // maxBatchSize bounds the rows of a single forward pass; larger batches are split
+    public PyTorchBackend(Module module, int maxBatchSize) {
+        this.module = module;
+        this.tensors = new TensorPool(INPUT_SIZE, maxBatchSize);
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return tensors.maxRows();
+    }
+
+    @Override
+    public void embed(float[] features, int offset, float[] out, int outOffset) {
+        TensorPool.Slot slot = tensors.acquire(1);
+        FloatBuffer buffer = slot.buffer;
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            buffer.put(i, Math.max(-FEATURE_CLAMP, Math.min(features[offset + i], FEATURE_CLAMP)));
+        }
+
+        Tensor outputTensor = module.forward(slot.inputs).toTuple()[0].toTensor();
+
+        // The runtime only exposes output data as a fresh array; copy it into the caller's
+        float[] outputData = outputTensor.getDataAsFloatArray();
+        System.arraycopy(outputData, 0, out, outOffset, EMBEDDING_SIZE);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Output Tensor Values: " + Arrays.toString(outputData));
+        }
+    }
+
+    // One forward pass per maxBatchSize() rows
+    @Override
+    public void embedBatch(float[] features, int rows, float[] out) {
+        for (int first = 0; first < rows; first += maxBatchSize()) {
+            int count = Math.min(maxBatchSize(), rows - first);
+            TensorPool.Slot slot = tensors.acquire(count);
+            FloatBuffer buffer = slot.buffer;
+            int base = first * INPUT_SIZE;
+            for (int i = 0; i < count * INPUT_SIZE; i++) {
+                buffer.put(i, Math.max(-FEATURE_CLAMP, Math.min(features[base + i], FEATURE_CLAMP)));
+            }
+
+            Tensor outputTensor = module.forward(slot.inputs).toTuple()[0].toTensor();
+            float[] outputData = outputTensor.getDataAsFloatArray();
+            System.arraycopy(outputData, 0, out, first * EMBEDDING_SIZE, count * EMBEDDING_SIZE);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        module.destroy();
+    }
+}
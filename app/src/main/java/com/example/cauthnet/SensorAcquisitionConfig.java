@@ -0,0 +1,81 @@
+package com.example.cauthnet;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+/**
+ * Sampling period and hardware FIFO batching for the accelerometer, gyroscope and magnetometer.
+ *
+ * A non-zero max report latency lets the sensor hub buffer events and deliver them in batches,
+ * so the listener thread wakes up once per batch instead of once per event. The newest samples
+ * can then be up to that latency old when a window is read.
+ */
+public final class SensorAcquisitionConfig {
+
+    // Same 200 ms period as SENSOR_DELAY_NORMAL, which the shipped model was trained with
+    public static final SensorAcquisitionConfig NORMAL =
+            new SensorAcquisitionConfig("Normal (5 Hz)", 200000, 200000, 200000, 0);
+    public static final SensorAcquisitionConfig LOW_POWER =
+            new SensorAcquisitionConfig("Low power (10 Hz, batched)", 100000, 100000, 200000, 1000000);
+    public static final SensorAcquisitionConfig BALANCED =
+            new SensorAcquisitionConfig("Balanced (50 Hz, batched)", 20000, 20000, 40000, 200000);
+    public static final SensorAcquisitionConfig HIGH_FIDELITY =
+            new SensorAcquisitionConfig("High fidelity (200 Hz)", 5000, 5000, 20000, 0);
+
+    public static final SensorAcquisitionConfig[] PRESETS = {NORMAL, LOW_POWER, BALANCED, HIGH_FIDELITY};
+
+    private final String name;
+    private final int[] samplingPeriodUs = new int[SensorWindowStore.SENSOR_COUNT];
+    private final int maxReportLatencyUs;
+
+    public SensorAcquisitionConfig(String name, int accelPeriodUs, int gyroPeriodUs, int magPeriodUs,
+                                   int maxReportLatencyUs) {
+        this.name = name;
+        samplingPeriodUs[SensorWindowStore.SENSOR_ACCEL] = accelPeriodUs;
+        samplingPeriodUs[SensorWindowStore.SENSOR_GYRO] = gyroPeriodUs;
+        samplingPeriodUs[SensorWindowStore.SENSOR_MAG] = magPeriodUs;
+        this.maxReportLatencyUs = maxReportLatencyUs;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSamplingPeriodUs(int sensor) {
+        return samplingPeriodUs[sensor];
+    }
+
+    public int getMaxReportLatencyUs() {
+        return maxReportLatencyUs;
+    }
+
+    // Nominal events per second with all three sensors registered
+    public double getEventRate() {
+        double rate = 0;
+        for (int periodUs : samplingPeriodUs) {
+            rate += 1e6 / periodUs;
+        }
+        return rate;
+    }
+
+    /**
+     * Registers the listener for each non-null sensor, indexed by the SensorWindowStore sensor
+     * constants, delivering events on the given handler. Returns false if any registration failed.
+     */
+    public boolean register(SensorManager sensorManager, SensorEventListener listener, Sensor[] sensors, Handler handler) {
+        boolean registered = true;
+        for (int sensor = 0; sensor < sensors.length; sensor++) {
+            if (sensors[sensor] == null) continue;
+            registered &= sensorManager.registerListener(listener, sensors[sensor],
+                    samplingPeriodUs[sensor], maxReportLatencyUs, handler);
+        }
+        return registered;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
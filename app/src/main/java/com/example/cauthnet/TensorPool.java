@@ -0,0 +1,57 @@
+package com.example.cauthnet;
+
+import org.pytorch.IValue;
+import org.pytorch.Tensor;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Preallocated native input tensors for the embedding model, one per batch size.
+ *
+ * Each slot keeps a direct {@link FloatBuffer} from {@link Tensor#allocateFloatBuffer(int)},
+ * its {@code [rows, featureCount]} shape and the tensor and IValue inputs wrapping it, so
+ * callers write features straight into native memory and reuse everything on the next call.
+ * Not thread-safe; used only from the inference worker.
+ */
+class TensorPool {
+
+    static final class Slot {
+        final FloatBuffer buffer;
+        final long[] shape;
+        final IValue[] inputs;
+
+        private Slot(int rows, int featureCount) {
+            buffer = Tensor.allocateFloatBuffer(rows * featureCount);
+            shape = new long[]{rows, featureCount};
+            Tensor tensor = Tensor.fromBlob(buffer, shape);
+            // The scripted model is a Siamese net taking two inputs; feed the same tensor to both
+            IValue value = IValue.from(tensor);
+            inputs = new IValue[]{value, value};
+        }
+    }
+
+    private final int featureCount;
+    private final Slot[] slots;
+
+    TensorPool(int featureCount, int maxRows) {
+        this.featureCount = featureCount;
+        this.slots = new Slot[maxRows + 1];
+    }
+
+    int maxRows() {
+        return slots.length - 1;
+    }
+
+    // Slots are created on first use for each batch size and kept for the pool's lifetime
+    Slot acquire(int rows) {
+        if (rows <= 0 || rows >= slots.length) {
+            throw new IllegalArgumentException("rows out of range: " + rows);
+        }
+        Slot slot = slots[rows];
+        if (slot == null) {
+            slot = new Slot(rows, featureCount);
+            slots[rows] = slot;
+        }
+        return slot;
+    }
+}
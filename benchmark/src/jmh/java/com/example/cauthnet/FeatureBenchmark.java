@@ -0,0 +1,78 @@
+package com.example.cauthnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the 144-value feature vector at a tap and averaging the tap history.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeatureBenchmark {
+
+    private static final int WINDOW_SIZE = 10;
+
+    @Param({"20", "100", "1000"})
+    public int historyLength;
+
+    private StreamingFeatureExtractor features;
+    private SensorWindowStore windows;
+    private final float[] statistics = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+    private final float[] average = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+    private final float[] row = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+    private HistoryRing history;
+
+    @Setup
+    public void setUp() {
+        SyntheticSensorStream stream = new SyntheticSensorStream(100, 1.0, 7);
+        features = new StreamingFeatureExtractor(WINDOW_SIZE);
+        stream.feed(features);
+        features.markTap();
+        stream.feed(features);
+        windows = new SensorWindowStore(WINDOW_SIZE);
+        stream.feed(windows);
+        windows.markTap();
+        stream.feed(windows);
+
+        Random random = new Random(7);
+        history = new HistoryRing(historyLength, StreamingFeatureExtractor.FEATURE_COUNT, true);
+        for (int i = 0; i < historyLength; i++) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = (float) random.nextGaussian();
+            }
+            history.add(row, 0);
+        }
+    }
+
+    // What createStatisticsArray does per tap
+    @Benchmark
+    public float[] snapshot() {
+        features.snapshot(statistics, 0);
+        return statistics;
+    }
+
+    // Same vector recomputed from the raw windows by the fused kernel
+    @Benchmark
+    public float[] fusedKernel() {
+        FeatureKernel.compute(windows, statistics, 0);
+        return statistics;
+    }
+
+    // One authentication tap on a full history: evict the oldest row, add the new one, average
+    @Benchmark
+    public float[] averageStatistics() {
+        history.add(row, 0);
+        history.average(average, 0);
+        return average;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.cauthnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forward passes of the pure-Java backends, float32 and int8, on random weights of the app
+ * network's shape, for a single tap and for batched enrollment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InferenceBenchmark {
+
+    private static final int[] SIZES = {144, 196, 128, 64, 32};
+
+    @Param({"1", "20"})
+    public int rows;
+
+    @Param({"float32", "int8"})
+    public String precision;
+
+    private EmbeddingBackend backend;
+    private float[] features;
+    private float[] embeddings;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        int layers = SIZES.length - 1;
+        float[][] weights = new float[layers][];
+        float[][] biases = new float[layers][];
+        for (int l = 0; l < layers; l++) {
+            // Roughly He-initialised so activations stay in a realistic range
+            weights[l] = gaussian(random, SIZES[l] * SIZES[l + 1], Math.sqrt(2.0 / SIZES[l]));
+            biases[l] = gaussian(random, SIZES[l + 1], 0.1);
+        }
+        float[] ones = new float[SIZES[layers]];
+        Arrays.fill(ones, 1);
+        MlpWeights mlp = new MlpWeights(SIZES, weights, biases, ones, new float[ones.length],
+                new float[ones.length], ones, 1e-5f);
+        backend = precision.equals("int8") ? new QuantizedMlpBackend(mlp, 32) : new MlpBackend(mlp, 32);
+        features = gaussian(random, rows * EmbeddingBackend.INPUT_SIZE, 4);
+        embeddings = new float[rows * EmbeddingBackend.EMBEDDING_SIZE];
+    }
+
+    @Benchmark
+    public float[] embed() {
+        if (rows == 1) {
+            backend.embed(features, 0, embeddings, 0);
+        } else {
+            backend.embedBatch(features, rows, embeddings);
+        }
+        return embeddings;
+    }
+
+    private static float[] gaussian(Random random, int count, double sigma) {
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (float) (random.nextGaussian() * sigma);
+        }
+        return values;
+    }
+}
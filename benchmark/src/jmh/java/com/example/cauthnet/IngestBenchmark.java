@@ -0,0 +1,84 @@
+package com.example.cauthnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of taking one second of accelerometer, gyroscope and magnetometer events into the
+ * window stores, at sensor rates from 50 to 500 Hz.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IngestBenchmark {
+
+    private static final int WINDOW_SIZE = 10;
+
+    @Param({"50", "100", "200", "500"})
+    public int rateHz;
+
+    private SyntheticSensorStream stream;
+    private SensorWindowStore store;
+    private StreamingFeatureExtractor tapFeatures;
+    private StreamingFeatureExtractor continuousFeatures;
+    private StreamingFeatureExtractor alignedFeatures;
+    private FrameAligner aligner;
+    private SampleRing ring;
+    private SampleRing.Consumer toAligner;
+
+    @Setup
+    public void setUp() {
+        stream = new SyntheticSensorStream(rateHz, 1.0, 42);
+        store = new SensorWindowStore(WINDOW_SIZE);
+        tapFeatures = new StreamingFeatureExtractor(WINDOW_SIZE);
+        continuousFeatures = new StreamingFeatureExtractor(WINDOW_SIZE, true);
+        alignedFeatures = new StreamingFeatureExtractor(WINDOW_SIZE, true);
+        aligner = new FrameAligner(1_000_000_000L / rateHz, 256, 2 * WINDOW_SIZE, 2_000_000_000L,
+                (timestampNanos, frames, offset) -> alignedFeatures.addFrame(frames, offset));
+        ring = new SampleRing(2048);
+        toAligner = (sensor, timestampNanos, x, y, z) -> aligner.add(sensor, timestampNanos, x, y, z);
+    }
+
+    @Benchmark
+    public SensorWindowStore windowStore() {
+        stream.feed(store);
+        return store;
+    }
+
+    @Benchmark
+    public StreamingFeatureExtractor tapFeatures() {
+        stream.feed(tapFeatures);
+        return tapFeatures;
+    }
+
+    @Benchmark
+    public StreamingFeatureExtractor continuousFeatures() {
+        stream.feed(continuousFeatures);
+        return continuousFeatures;
+    }
+
+    // Resampling onto the frame grid plus continuous feature updates per frame
+    @Benchmark
+    public StreamingFeatureExtractor alignedFrames() {
+        aligner.reset();
+        stream.feed(aligner);
+        return alignedFeatures;
+    }
+
+    // Same as alignedFrames with every event passed through the sensor thread's handoff ring
+    @Benchmark
+    public StreamingFeatureExtractor queuedAlignedFrames() {
+        aligner.reset();
+        stream.feed(ring);
+        ring.drain(toAligner);
+        return alignedFeatures;
+    }
+}
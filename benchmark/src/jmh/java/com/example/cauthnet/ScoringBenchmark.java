@@ -0,0 +1,76 @@
+package com.example.cauthnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Euclidean template matching of one embedding against the enrolled templates, on float
+ * templates and on their int8 copy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScoringBenchmark {
+
+    private static final int DIMENSION = 32;
+    private static final int TEMPLATES_PER_USER = 5;
+
+    @Param({"1", "5", "100", "1000"})
+    public int templates;
+
+    private TemplateIndex index;
+    private QuantizedTemplateIndex quantized;
+    private float[] query;
+    private final int[] rows = new int[1];
+    private final float[] distances = new float[1];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        index = new TemplateIndex(DIMENSION, templates);
+        for (int i = 0; i < templates; i++) {
+            index.add("user" + i / TEMPLATES_PER_USER, unitVector(random));
+        }
+        query = unitVector(random);
+        quantized = new QuantizedTemplateIndex(index);
+    }
+
+    @Benchmark
+    public float nearest() {
+        index.nearest(query, 1, rows, distances);
+        return distances[0];
+    }
+
+    @Benchmark
+    public TemplateIndex.Match closestUserUnder() {
+        return index.closestUserUnder(query, 0.7f);
+    }
+
+    @Benchmark
+    public float nearestInt8() {
+        quantized.nearest(query, 1, rows, distances);
+        return distances[0];
+    }
+
+    private static float[] unitVector(Random random) {
+        float[] v = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+            norm += v[i] * v[i];
+        }
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] /= (float) Math.sqrt(norm);
+        }
+        return v;
+    }
+}
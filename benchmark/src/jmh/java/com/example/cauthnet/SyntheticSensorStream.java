@@ -0,0 +1,88 @@
+package com.example.cauthnet;
+
+import java.util.Random;
+
+/**
+ * Deterministic stand-in for a phone's accelerometer, gyroscope and magnetometer.
+ *
+ * Events are produced in timestamp order across the three sensors, each sensor at the given
+ * rate with a little timestamp jitter, and values follow slow hand motion plus noise around
+ * gravity and the earth's field, so window statistics see realistic magnitudes.
+ */
+final class SyntheticSensorStream {
+
+    final int events;
+    final int[] sensors;
+    final long[] timestamps;
+    final float[] values; // x, y, z per event
+
+    SyntheticSensorStream(int rateHz, double seconds, long seed) {
+        Random random = new Random(seed);
+        long period = 1_000_000_000L / rateHz;
+        int perSensor = (int) (rateHz * seconds);
+        events = perSensor * SensorWindowStore.SENSOR_COUNT;
+        sensors = new int[events];
+        timestamps = new long[events];
+        values = new float[events * 3];
+
+        long[] next = new long[SensorWindowStore.SENSOR_COUNT];
+        int[] emitted = new int[SensorWindowStore.SENSOR_COUNT];
+        for (int sensor = 0; sensor < next.length; sensor++) {
+            next[sensor] = 1_000_000_000L + sensor * period / 3;
+        }
+        for (int e = 0; e < events; e++) {
+            int sensor = -1;
+            for (int s = 0; s < next.length; s++) {
+                if (emitted[s] < perSensor && (sensor < 0 || next[s] < next[sensor])) sensor = s;
+            }
+            long t = next[sensor];
+            double seconds0 = t / 1e9;
+            sensors[e] = sensor;
+            timestamps[e] = t;
+            values[e * 3] = sample(sensor, 0, seconds0, random);
+            values[e * 3 + 1] = sample(sensor, 1, seconds0, random);
+            values[e * 3 + 2] = sample(sensor, 2, seconds0, random);
+            emitted[sensor]++;
+            next[sensor] = t + period + (long) (random.nextGaussian() * period * 0.02);
+        }
+    }
+
+    void feed(SensorWindowStore store) {
+        for (int e = 0; e < events; e++) {
+            store.add(sensors[e], timestamps[e], values[e * 3], values[e * 3 + 1], values[e * 3 + 2]);
+        }
+    }
+
+    void feed(StreamingFeatureExtractor extractor) {
+        for (int e = 0; e < events; e++) {
+            extractor.add(sensors[e], values[e * 3], values[e * 3 + 1], values[e * 3 + 2]);
+        }
+    }
+
+    void feed(FrameAligner aligner) {
+        for (int e = 0; e < events; e++) {
+            aligner.add(sensors[e], timestamps[e], values[e * 3], values[e * 3 + 1], values[e * 3 + 2]);
+        }
+    }
+
+    // Offers events until the ring is full and returns how many it took
+    int feed(SampleRing ring) {
+        int e = 0;
+        while (e < events && ring.offer(sensors[e], timestamps[e], values[e * 3], values[e * 3 + 1], values[e * 3 + 2])) {
+            e++;
+        }
+        return e;
+    }
+
+    private static float sample(int sensor, int axis, double t, Random random) {
+        double motion = Math.sin(2 * Math.PI * (0.7 + 0.3 * axis) * t);
+        switch (sensor) {
+            case SensorWindowStore.SENSOR_ACCEL:
+                return (float) ((axis == 2 ? 9.81 : 0) + 0.8 * motion + 0.05 * random.nextGaussian());
+            case SensorWindowStore.SENSOR_GYRO:
+                return (float) (0.4 * motion + 0.01 * random.nextGaussian());
+            default:
+                return (float) ((axis == 0 ? 22 : axis == 1 ? -5 : -40) + 2 * motion + 0.3 * random.nextGaussian());
+        }
+    }
+}
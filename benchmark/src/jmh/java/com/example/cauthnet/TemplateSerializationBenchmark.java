@@ -0,0 +1,56 @@
+package com.example.cauthnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding the template file, without the file I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateSerializationBenchmark {
+
+    private static final int DIMENSION = 32;
+
+    @Param({"5", "100"})
+    public int templates;
+
+    private TemplateIndex index;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        index = new TemplateIndex(DIMENSION, templates);
+        float[] template = new float[DIMENSION];
+        for (int i = 0; i < templates; i++) {
+            for (int j = 0; j < DIMENSION; j++) {
+                template[j] = (float) random.nextGaussian();
+            }
+            index.add("user" + i / 5, template);
+        }
+        encoded = TemplateStore.encode(index);
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return TemplateStore.encode(index);
+    }
+
+    @Benchmark
+    public TemplateIndex parse() throws IOException {
+        return TemplateStore.decode(encoded.duplicate(), DIMENSION);
+    }
+}
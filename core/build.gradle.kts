@@ -0,0 +1,18 @@
+plugins {
+    `java-library`
+}
+
+// Plain JVM code shared by the app, the benchmarks and offline tools; no Android APIs
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+tasks.test {
+    // The backend tests run the network bundled with the app
+    systemProperty("cauthnet.weights", rootProject.file("app/src/main/assets/model_weights.bin").path)
+}
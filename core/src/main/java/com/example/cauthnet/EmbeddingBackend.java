@@ -0,0 +1,39 @@
+package com.example.cauthnet;
+
+/**
+ * Runs the embedding network: a 144-value feature vector in, a unit-length 32-value embedding
+ * out. Inputs are clamped to [-{@link #FEATURE_CLAMP}, {@link #FEATURE_CLAMP}] first, as in
+ * training. Implementations are not thread-safe; in the app the inference worker owns one.
+ */
+public interface EmbeddingBackend {
+
+    int INPUT_SIZE = StreamingFeatureExtractor.FEATURE_COUNT;
+    int EMBEDDING_SIZE = 32;
+    float FEATURE_CLAMP = 10;
+
+    // Largest number of rows a single embedBatch pass handles; larger batches are split
+    int maxBatchSize();
+
+    // Embeds features[offset .. offset + INPUT_SIZE) into out[outOffset .. outOffset + EMBEDDING_SIZE)
+    void embed(float[] features, int offset, float[] out, int outOffset);
+
+    // Embeds rows feature vectors stored back to back, writing the embeddings back to back
+    void embedBatch(float[] features, int rows, float[] out);
+
+    void destroy();
+
+    default float[] embed(float[] features) {
+        float[] embedding = new float[EMBEDDING_SIZE];
+        embed(features, 0, embedding, 0);
+        return embedding;
+    }
+
+    // Runs throwaway passes so one-off runtime setup happens before the first real request
+    default void warmUp(int passes) {
+        float[] dummy = new float[INPUT_SIZE];
+        float[] out = new float[EMBEDDING_SIZE];
+        for (int i = 0; i < passes; i++) {
+            embed(dummy, 0, out, 0);
+        }
+    }
+}
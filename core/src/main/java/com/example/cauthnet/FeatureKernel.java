@@ -0,0 +1,98 @@
+package com.example.cauthnet;
+
+/**
+ * Computes the 48 per-sensor features straight from the window store into a caller's array.
+ *
+ * The output layout is the same as {@link StreamingFeatureExtractor#snapshot}: for each of
+ * X, Y, Z, M the before-window mean, std, min and max, then the after window, then the after
+ * minus before differences. Mean, min and max of all four channels come from one sweep over a
+ * window; the standard deviation needs the finished mean, so it takes a second sweep over the
+ * same few samples. Sums are accumulated in float in sample order, so the results match the
+ * original per-statistic helpers bit for bit except for max: that starts from -Float.MAX_VALUE,
+ * where the helpers started from Float.MIN_VALUE and never reported a negative maximum. An
+ * empty window gives mean 0, std 0, min Float.MAX_VALUE and max 0.
+ */
+public final class FeatureKernel {
+
+    private static final int STATS = 4; // mean, std, min, max
+    private static final int BLOCK = WindowStatistics.CHANNELS * STATS;
+
+    private FeatureKernel() {
+    }
+
+    // Writes all three sensors, FEATURE_COUNT values, starting at offset
+    public static void compute(SensorWindowStore store, float[] out, int offset) {
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            computeSensor(store.before(sensor), store.after(sensor), out,
+                    offset + sensor * StreamingFeatureExtractor.FEATURES_PER_SENSOR);
+        }
+    }
+
+    // Writes FEATURES_PER_SENSOR values for one sensor starting at offset
+    public static void computeSensor(SensorWindowStore.Window before, SensorWindowStore.Window after,
+                                     float[] out, int offset) {
+        window(before, out, offset);
+        window(after, out, offset + BLOCK);
+        int diff = offset + 2 * BLOCK;
+        for (int i = 0; i < BLOCK; i++) {
+            out[diff + i] = out[offset + BLOCK + i] - out[offset + i];
+        }
+    }
+
+    private static void window(SensorWindowStore.Window window, float[] out, int offset) {
+        int n = window.size();
+        if (n == 0) {
+            for (int ch = 0; ch < WindowStatistics.CHANNELS; ch++) {
+                int o = offset + ch * STATS;
+                out[o] = 0;
+                out[o + 1] = 0;
+                out[o + 2] = Float.MAX_VALUE;
+                out[o + 3] = 0;
+            }
+            return;
+        }
+        float[] data = window.data();
+        float sx = 0, sy = 0, sz = 0, sm = 0;
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE, minM = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE, maxM = -Float.MAX_VALUE;
+        for (int s = 0; s < n; s++) {
+            int p = window.offsetOf(s);
+            float x = data[p], y = data[p + 1], z = data[p + 2], m = data[p + 3];
+            sx += x;
+            sy += y;
+            sz += z;
+            sm += m;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            minM = Math.min(minM, m);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+            maxM = Math.max(maxM, m);
+        }
+        float meanX = sx / n, meanY = sy / n, meanZ = sz / n, meanM = sm / n;
+
+        float vx = 0, vy = 0, vz = 0, vm = 0;
+        for (int s = 0; s < n; s++) {
+            int p = window.offsetOf(s);
+            float dx = data[p] - meanX, dy = data[p + 1] - meanY, dz = data[p + 2] - meanZ, dm = data[p + 3] - meanM;
+            vx += dx * dx;
+            vy += dy * dy;
+            vz += dz * dz;
+            vm += dm * dm;
+        }
+
+        put(out, offset, meanX, (float) Math.sqrt(vx / n), minX, maxX);
+        put(out, offset + STATS, meanY, (float) Math.sqrt(vy / n), minY, maxY);
+        put(out, offset + 2 * STATS, meanZ, (float) Math.sqrt(vz / n), minZ, maxZ);
+        put(out, offset + 3 * STATS, meanM, (float) Math.sqrt(vm / n), minM, maxM);
+    }
+
+    private static void put(float[] out, int o, float mean, float std, float min, float max) {
+        out[o] = mean;
+        out[o + 1] = std;
+        out[o + 2] = min;
+        out[o + 3] = max;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.cauthnet;
+
+/**
+ * Small numeric helpers over feature vectors that do not belong to a particular pipeline stage.
+ */
+public final class FeatureMath {
+
+    private FeatureMath() {
+    }
+
+    /**
+     * Averages {@code rows} embeddings into one template and rescales it to unit length, matching
+     * the L2-normalised embeddings the network produces.
+     */
+    public static float[] averageEmbedding(float[] embeddings, int rows, int dimension) {
+        float[] template = new float[dimension];
+        for (int r = 0; r < rows; r++) {
+            for (int i = 0; i < dimension; i++) {
+                template[i] += embeddings[r * dimension + i];
+            }
+        }
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            norm += template[i] * template[i];
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < dimension; i++) {
+                template[i] /= norm;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Standard error of the mean of {@code rows} embeddings: the root of the per-axis variances
+     * of the mean, summed over axes, i.e. how far their average likely lies from that of many more.
+     */
+    public static float standardError(float[] embeddings, int rows, int dimension) {
+        if (rows < 2) return Float.POSITIVE_INFINITY;
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            double mean = 0;
+            for (int r = 0; r < rows; r++) {
+                mean += embeddings[r * dimension + i];
+            }
+            mean /= rows;
+            for (int r = 0; r < rows; r++) {
+                double d = embeddings[r * dimension + i] - mean;
+                sum += d * d;
+            }
+        }
+        return (float) Math.sqrt(sum / ((double) rows * (rows - 1)));
+    }
+}
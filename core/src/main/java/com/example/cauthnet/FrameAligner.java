@@ -0,0 +1,214 @@
+package com.example.cauthnet;
+
+import java.util.Arrays;
+
+/**
+ * Resamples the accelerometer, gyroscope and magnetometer onto one fixed-rate time grid.
+ *
+ * Raw events are kept per sensor with their timestamps in preallocated rings. As soon as every
+ * sensor has reported a sample at or past the next grid time, each sensor is linearly
+ * interpolated at that time and the result is written as one interleaved frame of
+ * {@link #FRAME_SIZE} floats: X, Y, Z, M for each sensor in SensorWindowStore order, with M
+ * computed from the interpolated axes. Frames go into a ring of preallocated frames and are
+ * handed to the listener in time order; a frame's contents stay valid until the ring wraps.
+ *
+ * A sensor that has not reported for {@code silenceNanos} while another one has, such as one
+ * the device does not have, does not hold the grid back: frames are built without it and its
+ * four values are NaN, which frame consumers skip, so its windows stay empty as they were
+ * before alignment. It rejoins as soon as it reports again.
+ *
+ * Because the grid does not depend on the sensors' own rates, windows of frames cover the same
+ * wall-clock span on every device. Not thread-safe; feed it from one thread.
+ */
+public class FrameAligner {
+
+    public static final int FRAME_SIZE = SensorWindowStore.SENSOR_COUNT * SensorWindowStore.CHANNELS;
+
+    public interface FrameListener {
+        void onFrame(long timestampNanos, float[] frames, int offset);
+    }
+
+    private final long periodNanos;
+    private final long silenceNanos;
+    private final int sampleCapacity;
+    private final int frameCapacity;
+    private final FrameListener listener;
+
+    private final long[][] timestamps = new long[SensorWindowStore.SENSOR_COUNT][];
+    private final float[][] samples = new float[SensorWindowStore.SENSOR_COUNT][];
+    private final int[] counts = new int[SensorWindowStore.SENSOR_COUNT];
+    // Per sensor, the newest sample at or before the next grid time
+    private final int[] cursors = new int[SensorWindowStore.SENSOR_COUNT];
+
+    private final float[] frames;
+    private int frameCount;
+    private long nextFrameNanos = -1;
+    // First and newest timestamps from any sensor since the last reset
+    private long firstNanos = -1;
+    private long newestNanos;
+    private int samplesDropped;
+
+    /**
+     * @param sampleCapacity raw samples kept per sensor; must cover the largest skew between
+     *                       sensors, e.g. a full hardware FIFO batch
+     * @param frameCapacity  frames kept in the output ring
+     * @param silenceNanos   how long a sensor may lag the others before frames go on without
+     *                       it; must exceed the largest batching skew between sensors
+     */
+    public FrameAligner(long periodNanos, int sampleCapacity, int frameCapacity, long silenceNanos,
+                        FrameListener listener) {
+        if (periodNanos <= 0 || sampleCapacity < 2 || frameCapacity <= 0 || silenceNanos <= 0) {
+            throw new IllegalArgumentException("Invalid frame aligner configuration");
+        }
+        this.periodNanos = periodNanos;
+        this.silenceNanos = silenceNanos;
+        this.sampleCapacity = sampleCapacity;
+        this.frameCapacity = frameCapacity;
+        this.listener = listener;
+        this.frames = new float[frameCapacity * FRAME_SIZE];
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            timestamps[sensor] = new long[sampleCapacity];
+            samples[sensor] = new float[sampleCapacity * 3];
+        }
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    // Raw samples discarded because they were out of order or fell out of the ring unused
+    public int getSamplesDropped() {
+        return samplesDropped;
+    }
+
+    public void reset() {
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            counts[sensor] = 0;
+            cursors[sensor] = 0;
+        }
+        frameCount = 0;
+        nextFrameNanos = -1;
+        firstNanos = -1;
+        newestNanos = 0;
+    }
+
+    public void add(int sensor, long timestampNanos, float x, float y, float z) {
+        int count = counts[sensor];
+        if (count > 0 && timestampNanos <= timestamps[sensor][(count - 1) % sampleCapacity]) {
+            samplesDropped++;
+            return;
+        }
+        int slot = count % sampleCapacity;
+        timestamps[sensor][slot] = timestampNanos;
+        float[] ring = samples[sensor];
+        ring[slot * 3] = x;
+        ring[slot * 3 + 1] = y;
+        ring[slot * 3 + 2] = z;
+        counts[sensor] = count + 1;
+        if (firstNanos < 0) {
+            firstNanos = timestampNanos;
+        }
+        newestNanos = Math.max(newestNanos, timestampNanos);
+        emitFrames();
+    }
+
+    private void emitFrames() {
+        if (nextFrameNanos < 0) {
+            long start = 0;
+            for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+                if (isSilent(sensor)) continue;
+                if (counts[sensor] == 0) return;
+                start = Math.max(start, timestamps[sensor][0]);
+            }
+            nextFrameNanos = alignUp(start);
+        }
+        while (allReached(nextFrameNanos)) {
+            long t = nextFrameNanos;
+            long skipTo = -1;
+            for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+                if (isSilent(sensor)) continue;
+                long oldest = advanceCursor(sensor, t);
+                if (oldest > t) skipTo = Math.max(skipTo, oldest);
+            }
+            if (skipTo >= 0) {
+                // Samples covering t were overwritten (a gap or overlong batch); restart the grid
+                nextFrameNanos = alignUp(skipTo);
+                continue;
+            }
+            int offset = (frameCount % frameCapacity) * FRAME_SIZE;
+            for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+                int out = offset + sensor * SensorWindowStore.CHANNELS;
+                if (isSilent(sensor)) {
+                    Arrays.fill(frames, out, out + SensorWindowStore.CHANNELS, Float.NaN);
+                } else {
+                    interpolate(sensor, t, out);
+                }
+            }
+            frameCount++;
+            nextFrameNanos = t + periodNanos;
+            listener.onFrame(t, frames, offset);
+        }
+    }
+
+    private boolean allReached(long t) {
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            if (isSilent(sensor)) continue;
+            int count = counts[sensor];
+            if (count == 0 || timestamps[sensor][(count - 1) % sampleCapacity] < t) return false;
+        }
+        return true;
+    }
+
+    // True if the sensor has said nothing for silenceNanos while another sensor kept reporting
+    private boolean isSilent(int sensor) {
+        int count = counts[sensor];
+        long last = count == 0 ? firstNanos : timestamps[sensor][(count - 1) % sampleCapacity];
+        return newestNanos - last >= silenceNanos;
+    }
+
+    // Moves the cursor to the newest sample at or before t; returns the oldest retained timestamp
+    private long advanceCursor(int sensor, long t) {
+        long[] ts = timestamps[sensor];
+        int count = counts[sensor];
+        int oldest = Math.max(0, count - sampleCapacity);
+        if (cursors[sensor] < oldest) {
+            samplesDropped += oldest - cursors[sensor];
+            cursors[sensor] = oldest;
+        }
+        int cursor = cursors[sensor];
+        while (cursor + 1 < count && ts[(cursor + 1) % sampleCapacity] <= t) {
+            cursor++;
+        }
+        cursors[sensor] = cursor;
+        return ts[oldest % sampleCapacity];
+    }
+
+    private void interpolate(int sensor, long t, int out) {
+        long[] ts = timestamps[sensor];
+        float[] ring = samples[sensor];
+        int cursor = cursors[sensor];
+        int a = (cursor % sampleCapacity) * 3;
+        float x = ring[a], y = ring[a + 1], z = ring[a + 2];
+        long t0 = ts[cursor % sampleCapacity];
+        if (t0 < t && cursor + 1 < counts[sensor]) {
+            int b = ((cursor + 1) % sampleCapacity) * 3;
+            long t1 = ts[(cursor + 1) % sampleCapacity];
+            float w = (float) ((double) (t - t0) / (t1 - t0));
+            x += w * (ring[b] - x);
+            y += w * (ring[b + 1] - y);
+            z += w * (ring[b + 2] - z);
+        }
+        frames[out] = x;
+        frames[out + 1] = y;
+        frames[out + 2] = z;
+        frames[out + 3] = (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    private long alignUp(long timestampNanos) {
+        return (timestampNanos + periodNanos - 1) / periodNanos * periodNanos;
+    }
+}
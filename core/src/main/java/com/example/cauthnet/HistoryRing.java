@@ -0,0 +1,122 @@
+package com.example.cauthnet;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity history of feature vectors with a running per-element sum.
+ *
+ * Vectors live back to back in one flat {@code float[capacity * dimension]}; once full, each new
+ * vector overwrites the oldest and its values are subtracted from the sum. Adding a vector and
+ * reading the average therefore cost O(dimension) whatever the capacity. The sum is kept in
+ * doubles; with {@code compensated} set it also carries Kahan-Babuska-Neumaier compensation
+ * terms, so long runs of adds and evictions do not drift.
+ */
+public class HistoryRing {
+
+    private final int capacity;
+    private final int dimension;
+    private final boolean compensated;
+    private final float[] rows;
+    private final double[] sum;
+    private final double[] compensation;
+    private int head; // slot of the oldest vector
+    private int size;
+
+    public HistoryRing(int capacity, int dimension, boolean compensated) {
+        if (capacity <= 0 || dimension <= 0) {
+            throw new IllegalArgumentException("capacity and dimension must be positive");
+        }
+        this.capacity = capacity;
+        this.dimension = dimension;
+        this.compensated = compensated;
+        this.rows = new float[capacity * dimension];
+        this.sum = new double[dimension];
+        this.compensation = compensated ? new double[dimension] : null;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        Arrays.fill(sum, 0);
+        if (compensated) {
+            Arrays.fill(compensation, 0);
+        }
+    }
+
+    // Appends dimension values starting at offset, evicting the oldest vector when full
+    public void add(float[] values, int offset) {
+        int slot;
+        if (size == capacity) {
+            slot = head * dimension;
+            for (int i = 0; i < dimension; i++) {
+                accumulate(i, -rows[slot + i]);
+            }
+            head = (head + 1) % capacity;
+        } else {
+            slot = ((head + size) % capacity) * dimension;
+            size++;
+        }
+        for (int i = 0; i < dimension; i++) {
+            float v = values[offset + i];
+            rows[slot + i] = v;
+            accumulate(i, v);
+        }
+    }
+
+    // Element-wise mean of the stored vectors, written at offset; zeros when empty
+    public void average(float[] out, int offset) {
+        for (int i = 0; i < dimension; i++) {
+            double total = compensated ? sum[i] + compensation[i] : sum[i];
+            out[offset + i] = size == 0 ? 0 : (float) (total / size);
+        }
+    }
+
+    public float[] average() {
+        float[] out = new float[dimension];
+        average(out, 0);
+        return out;
+    }
+
+    // Copies the stored vectors oldest first, back to back, starting at offset
+    public void copyRows(float[] out, int offset) {
+        for (int r = 0; r < size; r++) {
+            System.arraycopy(rows, ((head + r) % capacity) * dimension, out, offset + r * dimension, dimension);
+        }
+    }
+
+    private void accumulate(int i, double v) {
+        if (!compensated) {
+            sum[i] += v;
+            return;
+        }
+        // Neumaier's variant of Kahan summation: also correct when v is larger than the sum
+        double s = sum[i];
+        double t = s + v;
+        if (Math.abs(s) >= Math.abs(v)) {
+            compensation[i] += (s - t) + v;
+        } else {
+            compensation[i] += (v - t) + s;
+        }
+        sum[i] = t;
+    }
+}
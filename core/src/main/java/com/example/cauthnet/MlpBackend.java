@@ -0,0 +1,146 @@
+package com.example.cauthnet;
+
+/**
+ * Pure-Java embedding backend that runs the network from {@link MlpWeights}, with no native
+ * runtime to load.
+ *
+ * Activations ping-pong between two preallocated buffers, so a call allocates nothing. A single
+ * input is pushed through each layer four output rows at a time; a batch is pushed through four
+ * inputs at a time, so every weight row is streamed once per four inputs. Either way each output
+ * is one sequential float dot product, so embed and embedBatch give bit-identical results.
+ */
+public class MlpBackend implements EmbeddingBackend {
+
+    private static final int BLOCK = 4;
+
+    private final MlpWeights weights;
+    private final int maxBatchSize;
+    private float[] current;
+    private float[] next;
+
+    public MlpBackend(MlpWeights weights, int maxBatchSize) {
+        if (weights.inputSize() != INPUT_SIZE || weights.outputSize() != EMBEDDING_SIZE) {
+            throw new IllegalArgumentException("Expected a " + INPUT_SIZE + " to " + EMBEDDING_SIZE + " network");
+        }
+        this.weights = weights;
+        this.maxBatchSize = maxBatchSize;
+        this.current = new float[maxBatchSize * weights.maxWidth()];
+        this.next = new float[maxBatchSize * weights.maxWidth()];
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public void embed(float[] features, int offset, float[] out, int outOffset) {
+        clamp(features, offset, 1);
+        int layers = weights.layerCount();
+        for (int l = 0; l < layers; l++) {
+            matVec(weights.weights[l], weights.biases[l], weights.sizes[l], weights.sizes[l + 1], l < layers - 1);
+            swap();
+        }
+        weights.finish(current, 1, out, outOffset);
+    }
+
+    @Override
+    public void embedBatch(float[] features, int rows, float[] out) {
+        for (int first = 0; first < rows; first += maxBatchSize) {
+            int count = Math.min(maxBatchSize, rows - first);
+            clamp(features, first * INPUT_SIZE, count);
+            int layers = weights.layerCount();
+            for (int l = 0; l < layers; l++) {
+                matMat(weights.weights[l], weights.biases[l], count, weights.sizes[l], weights.sizes[l + 1], l < layers - 1);
+                swap();
+            }
+            weights.finish(current, count, out, first * EMBEDDING_SIZE);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void clamp(float[] features, int offset, int rows) {
+        for (int i = 0; i < rows * INPUT_SIZE; i++) {
+            current[i] = Math.max(-FEATURE_CLAMP, Math.min(features[offset + i], FEATURE_CLAMP));
+        }
+    }
+
+    // next[o] = w[o] . current + b[o], four outputs per pass over the input
+    private void matVec(float[] w, float[] b, int in, int out, boolean relu) {
+        float[] x = current;
+        int o = 0;
+        for (; o + BLOCK <= out; o += BLOCK) {
+            int r0 = o * in, r1 = r0 + in, r2 = r1 + in, r3 = r2 + in;
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            for (int i = 0; i < in; i++) {
+                float v = x[i];
+                s0 += w[r0 + i] * v;
+                s1 += w[r1 + i] * v;
+                s2 += w[r2 + i] * v;
+                s3 += w[r3 + i] * v;
+            }
+            next[o] = activate(s0 + b[o], relu);
+            next[o + 1] = activate(s1 + b[o + 1], relu);
+            next[o + 2] = activate(s2 + b[o + 2], relu);
+            next[o + 3] = activate(s3 + b[o + 3], relu);
+        }
+        for (; o < out; o++) {
+            int r = o * in;
+            float s = 0;
+            for (int i = 0; i < in; i++) {
+                s += w[r + i] * x[i];
+            }
+            next[o] = activate(s + b[o], relu);
+        }
+    }
+
+    // Same as matVec for rows inputs stored back to back, four inputs per pass over a weight row
+    private void matMat(float[] w, float[] b, int rows, int in, int out, boolean relu) {
+        float[] x = current;
+        int n = 0;
+        for (; n + BLOCK <= rows; n += BLOCK) {
+            int x0 = n * in, x1 = x0 + in, x2 = x1 + in, x3 = x2 + in;
+            int y0 = n * out, y1 = y0 + out, y2 = y1 + out, y3 = y2 + out;
+            for (int o = 0; o < out; o++) {
+                int r = o * in;
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int i = 0; i < in; i++) {
+                    float v = w[r + i];
+                    s0 += v * x[x0 + i];
+                    s1 += v * x[x1 + i];
+                    s2 += v * x[x2 + i];
+                    s3 += v * x[x3 + i];
+                }
+                next[y0 + o] = activate(s0 + b[o], relu);
+                next[y1 + o] = activate(s1 + b[o], relu);
+                next[y2 + o] = activate(s2 + b[o], relu);
+                next[y3 + o] = activate(s3 + b[o], relu);
+            }
+        }
+        for (; n < rows; n++) {
+            int xi = n * in;
+            int yi = n * out;
+            for (int o = 0; o < out; o++) {
+                int r = o * in;
+                float s = 0;
+                for (int i = 0; i < in; i++) {
+                    s += w[r + i] * x[xi + i];
+                }
+                next[yi + o] = activate(s + b[o], relu);
+            }
+        }
+    }
+
+    private void swap() {
+        float[] t = current;
+        current = next;
+        next = t;
+    }
+
+    private static float activate(float v, boolean relu) {
+        return relu && v < 0 ? 0 : v;
+    }
+}
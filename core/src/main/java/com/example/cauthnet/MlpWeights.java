@@ -0,0 +1,163 @@
+package com.example.cauthnet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Immutable weights of the embedding network as exported by {@code tools/export_weights.py}:
+ * linear layers with ReLU between them, then an optional batch norm on the output.
+ *
+ * Each layer's weights stay in PyTorch's row-major {@code [out][in]} order, so one output is a
+ * dot product over a contiguous row. The batch norm running statistics are folded into a
+ * per-output scale and shift at load time, as the runtime does in eval mode. Safe to share
+ * between backends and threads.
+ */
+public final class MlpWeights {
+
+    static final int MAGIC = 0x574D4143; // "CAMW"
+    static final short VERSION = 1;
+
+    final int[] sizes; // Input width, then each layer's output width
+    final float[][] weights;
+    final float[][] biases;
+    final float[] normScale; // null without batch norm
+    final float[] normShift;
+
+    /**
+     * {@code sizes[l]} and {@code sizes[l + 1]} are layer l's input and output widths; the batch
+     * norm arrays may be null.
+     */
+    public MlpWeights(int[] sizes, float[][] weights, float[][] biases,
+                      float[] gamma, float[] beta, float[] mean, float[] variance, float eps) {
+        if (weights.length != sizes.length - 1 || biases.length != weights.length) {
+            throw new IllegalArgumentException("Expected " + (sizes.length - 1) + " layers");
+        }
+        for (int l = 0; l < weights.length; l++) {
+            if (weights[l].length != sizes[l] * sizes[l + 1] || biases[l].length != sizes[l + 1]) {
+                throw new IllegalArgumentException("Layer " + l + " does not match its sizes");
+            }
+        }
+        this.sizes = sizes.clone();
+        this.weights = weights;
+        this.biases = biases;
+        if (gamma == null) {
+            normScale = null;
+            normShift = null;
+        } else {
+            int n = outputSize();
+            if (gamma.length != n || beta.length != n || mean.length != n || variance.length != n) {
+                throw new IllegalArgumentException("Batch norm size does not match the output");
+            }
+            normScale = new float[n];
+            normShift = new float[n];
+            for (int i = 0; i < n; i++) {
+                normScale[i] = gamma[i] / (float) Math.sqrt(variance[i] + eps);
+                normShift[i] = beta[i] - mean[i] * normScale[i];
+            }
+        }
+    }
+
+    public static MlpWeights read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            bytes.write(buffer, 0, n);
+        }
+        ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (data.getInt() != MAGIC) {
+                throw new IOException("Not an exported weights file");
+            }
+            if (data.getShort() != VERSION) {
+                throw new IOException("Unsupported weights version");
+            }
+            int layers = data.getShort();
+            int[] sizes = new int[layers + 1];
+            float[][] weights = new float[layers][];
+            float[][] biases = new float[layers][];
+            for (int l = 0; l < layers; l++) {
+                int inputs = data.getInt();
+                int outputs = data.getInt();
+                if (l > 0 && inputs != sizes[l]) {
+                    throw new IOException("Layer " + l + " takes " + inputs + " inputs, previous has " + sizes[l]);
+                }
+                sizes[l] = inputs;
+                sizes[l + 1] = outputs;
+                weights[l] = floats(data, inputs * outputs);
+                biases[l] = floats(data, outputs);
+            }
+            int normSize = data.getInt();
+            float eps = data.getFloat();
+            if (normSize == 0) {
+                return new MlpWeights(sizes, weights, biases, null, null, null, null, 0);
+            }
+            return new MlpWeights(sizes, weights, biases, floats(data, normSize), floats(data, normSize),
+                    floats(data, normSize), floats(data, normSize), eps);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt weights file", e);
+        }
+    }
+
+    public int inputSize() {
+        return sizes[0];
+    }
+
+    public int outputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    public int layerCount() {
+        return weights.length;
+    }
+
+    // Bytes of float weights and biases
+    public int parameterBytes() {
+        int bytes = 0;
+        for (int l = 0; l < weights.length; l++) {
+            bytes += (weights[l].length + biases[l].length) * 4;
+        }
+        return bytes;
+    }
+
+    // Widest layer input or output, which bounds the activation buffers
+    int maxWidth() {
+        int max = 0;
+        for (int size : sizes) {
+            max = Math.max(max, size);
+        }
+        return max;
+    }
+
+    // Applies the batch norm to the last layer's rows in place, then writes them scaled to unit length
+    void finish(float[] activations, int rows, float[] out, int outOffset) {
+        int size = outputSize();
+        for (int n = 0; n < rows; n++) {
+            int row = n * size;
+            float norm = 0;
+            for (int i = 0; i < size; i++) {
+                float v = activations[row + i];
+                if (normScale != null) {
+                    v = v * normScale[i] + normShift[i];
+                }
+                activations[row + i] = v;
+                norm += v * v;
+            }
+            norm = (float) Math.sqrt(norm);
+            for (int i = 0; i < size; i++) {
+                out[outOffset + row + i] = activations[row + i] / norm;
+            }
+        }
+    }
+
+    private static float[] floats(ByteBuffer data, int count) {
+        float[] values = new float[count];
+        FloatBuffer view = data.asFloatBuffer();
+        view.get(values);
+        data.position(data.position() + count * 4);
+        return values;
+    }
+}
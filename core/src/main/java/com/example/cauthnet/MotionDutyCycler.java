@@ -0,0 +1,132 @@
+package com.example.cauthnet;
+
+/**
+ * Decides from the accelerometer alone whether the device is being handled or lying still.
+ *
+ * The accelerometer magnitude is tracked with an exponentially weighted mean and variance
+ * whose time constant is {@code smoothingNanos}: a few operations per sample and no buffers.
+ * The cycler drops to {@link State#IDLE} once the variance has stayed below
+ * {@code stillVariance} for {@code idleAfterNanos}, and returns to {@link State#ACTIVE} on the
+ * first sample that pushes it above {@code motionVariance}; the gap between the two thresholds
+ * keeps it from flapping on sensor noise. How quickly motion is noticed while idle is set by
+ * the idle sampling period the caller picks. Time spent in each state and the number of
+ * wake-ups are kept for reporting. Not thread-safe; feed it from one thread.
+ */
+public class MotionDutyCycler {
+
+    public enum State {
+        ACTIVE,
+        IDLE
+    }
+
+    private final float stillVariance;
+    private final float motionVariance;
+    private final long idleAfterNanos;
+    private final long smoothingNanos;
+
+    private State state = State.ACTIVE;
+    private long lastTimestamp = -1;
+    private long stillSince = -1;
+    private float mean;
+    private float variance;
+
+    private long activeNanos;
+    private long idleNanos;
+    private int wakeUps;
+
+    /**
+     * @param stillVariance  magnitude variance, in (m/s^2)^2, below which the device counts as still
+     * @param motionVariance variance above which an idle device counts as handled again
+     * @param idleAfterNanos how long the device must stay still before going idle
+     * @param smoothingNanos time constant of the mean and variance estimates
+     */
+    public MotionDutyCycler(float stillVariance, float motionVariance, long idleAfterNanos, long smoothingNanos) {
+        if (stillVariance <= 0 || motionVariance < stillVariance || idleAfterNanos < 0 || smoothingNanos <= 0) {
+            throw new IllegalArgumentException("Invalid duty cycle configuration");
+        }
+        this.stillVariance = stillVariance;
+        this.motionVariance = motionVariance;
+        this.idleAfterNanos = idleAfterNanos;
+        this.smoothingNanos = smoothingNanos;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public float getVariance() {
+        return variance;
+    }
+
+    /**
+     * Feeds one accelerometer sample and returns true if the state changed. Time since the
+     * previous sample is credited to the state the device was in.
+     */
+    public boolean onAccel(long timestampNanos, float x, float y, float z) {
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        if (lastTimestamp < 0) {
+            lastTimestamp = timestampNanos;
+            mean = magnitude;
+            return false;
+        }
+        long dt = Math.max(0, timestampNanos - lastTimestamp);
+        lastTimestamp = timestampNanos;
+        if (state == State.ACTIVE) {
+            activeNanos += dt;
+        } else {
+            idleNanos += dt;
+        }
+
+        // First-order weight for this gap, so uneven and batched delivery smooth the same way
+        float alpha = (float) dt / (smoothingNanos + dt);
+        float delta = magnitude - mean;
+        mean += alpha * delta;
+        variance = (1 - alpha) * (variance + alpha * delta * delta);
+
+        if (state == State.IDLE) {
+            if (variance > motionVariance) {
+                wake();
+                return true;
+            }
+            return false;
+        }
+        if (variance >= stillVariance) {
+            stillSince = -1;
+        } else if (stillSince < 0) {
+            stillSince = timestampNanos;
+        } else if (timestampNanos - stillSince >= idleAfterNanos) {
+            state = State.IDLE;
+            return true;
+        }
+        return false;
+    }
+
+    // Forces the active state, for activity the accelerometer cannot see such as a tap
+    public void wake() {
+        if (state == State.IDLE) {
+            wakeUps++;
+        }
+        state = State.ACTIVE;
+        stillSince = -1;
+    }
+
+    // Starts over in the active state, e.g. after the sensors were off; statistics are kept
+    public void reset() {
+        state = State.ACTIVE;
+        lastTimestamp = -1;
+        stillSince = -1;
+        variance = 0;
+    }
+
+    public long getActiveNanos() {
+        return activeNanos;
+    }
+
+    public long getIdleNanos() {
+        return idleNanos;
+    }
+
+    public int getWakeUps() {
+        return wakeUps;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.cauthnet;
+
+import java.util.Locale;
+
+/**
+ * One latency histogram per stage of the tap-to-decision authentication pipeline.
+ */
+public class PipelineMetrics {
+
+    public enum Stage {
+        CAPTURE("Window capture"),
+        FEATURES("Feature vector"),
+        AVERAGE("History average"),
+        INFERENCE("Queue + inference"),
+        FORWARD("Model forward"),
+        TEMPLATE_LOAD("Template load"),
+        DISTANCE("Template distance"),
+        TOTAL("Tap to decision");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    public PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms[stage.ordinal()] = new LatencyHistogram(stage.label);
+        }
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void recordSince(Stage stage, long startNanos) {
+        histograms[stage.ordinal()].recordSince(startNanos);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    // Plain-text table of every stage, in milliseconds
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%-18s %6s %8s %8s %8s %8s%n", "stage (ms)", "n", "p50", "p95", "p99", "max"));
+        for (LatencyHistogram h : histograms) {
+            out.append(String.format(Locale.US, "%-18s %6d %8.2f %8.2f %8.2f %8.2f%n", h.getName(), h.count(),
+                    h.percentileMicros(50) / 1000.0, h.percentileMicros(95) / 1000.0,
+                    h.percentileMicros(99) / 1000.0, h.maxMicros() / 1000.0));
+        }
+        return out.toString();
+    }
+}
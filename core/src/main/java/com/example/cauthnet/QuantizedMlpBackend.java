@@ -0,0 +1,137 @@
+package com.example.cauthnet;
+
+/**
+ * Dynamically quantized variant of {@link MlpBackend}.
+ *
+ * Each linear layer's weights are quantized once, at construction, to int8 with one symmetric
+ * scale per output row. At run time each input row is quantized to int8 with its own scale
+ * before every layer, dot products accumulate exactly in int, and the result is rescaled by
+ * both scales and the float bias added. Batch norm and the L2 normalisation stay in float. The
+ * weights take a quarter of the float backend's memory; results are close to but not
+ * bit-identical with the float path.
+ */
+public class QuantizedMlpBackend implements EmbeddingBackend {
+
+    private static final int BLOCK = 4;
+
+    private final MlpWeights weights;
+    private final int maxBatchSize;
+    private final byte[][] quantized;
+    private final float[][] rowScales;
+    private float[] current;
+    private float[] next;
+    private final byte[] input;
+    private final float[] inputScales;
+
+    public QuantizedMlpBackend(MlpWeights weights, int maxBatchSize) {
+        if (weights.inputSize() != INPUT_SIZE || weights.outputSize() != EMBEDDING_SIZE) {
+            throw new IllegalArgumentException("Expected a " + INPUT_SIZE + " to " + EMBEDDING_SIZE + " network");
+        }
+        this.weights = weights;
+        this.maxBatchSize = maxBatchSize;
+        int layers = weights.layerCount();
+        quantized = new byte[layers][];
+        rowScales = new float[layers][];
+        for (int l = 0; l < layers; l++) {
+            int in = weights.sizes[l];
+            int out = weights.sizes[l + 1];
+            quantized[l] = new byte[in * out];
+            rowScales[l] = new float[out];
+            for (int o = 0; o < out; o++) {
+                rowScales[l][o] = QuantizedTemplateIndex.quantize(weights.weights[l], o * in, quantized[l], o * in, in);
+            }
+        }
+        int width = weights.maxWidth();
+        current = new float[maxBatchSize * width];
+        next = new float[maxBatchSize * width];
+        input = new byte[maxBatchSize * width];
+        inputScales = new float[maxBatchSize];
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    // Bytes of int8 weights, row scales and float biases
+    public int parameterBytes() {
+        int bytes = 0;
+        for (int l = 0; l < quantized.length; l++) {
+            bytes += quantized[l].length + rowScales[l].length * 4 + weights.biases[l].length * 4;
+        }
+        return bytes;
+    }
+
+    @Override
+    public void embed(float[] features, int offset, float[] out, int outOffset) {
+        embedRows(features, offset, 1, out, outOffset);
+    }
+
+    @Override
+    public void embedBatch(float[] features, int rows, float[] out) {
+        for (int first = 0; first < rows; first += maxBatchSize) {
+            int count = Math.min(maxBatchSize, rows - first);
+            embedRows(features, first * INPUT_SIZE, count, out, first * EMBEDDING_SIZE);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void embedRows(float[] features, int offset, int rows, float[] out, int outOffset) {
+        for (int i = 0; i < rows * INPUT_SIZE; i++) {
+            current[i] = Math.max(-FEATURE_CLAMP, Math.min(features[offset + i], FEATURE_CLAMP));
+        }
+        int layers = weights.layerCount();
+        for (int l = 0; l < layers; l++) {
+            int in = weights.sizes[l];
+            for (int n = 0; n < rows; n++) {
+                inputScales[n] = QuantizedTemplateIndex.quantize(current, n * in, input, n * in, in);
+            }
+            layer(quantized[l], rowScales[l], weights.biases[l], rows, in, weights.sizes[l + 1], l < layers - 1);
+            float[] t = current;
+            current = next;
+            next = t;
+        }
+        weights.finish(current, rows, out, outOffset);
+    }
+
+    // next = dequantized (w . input) + b for every row, four outputs per pass over an input row
+    private void layer(byte[] w, float[] scales, float[] b, int rows, int in, int out, boolean relu) {
+        byte[] x = input;
+        for (int n = 0; n < rows; n++) {
+            int xi = n * in;
+            int yi = n * out;
+            float inputScale = inputScales[n];
+            int o = 0;
+            for (; o + BLOCK <= out; o += BLOCK) {
+                int r0 = o * in, r1 = r0 + in, r2 = r1 + in, r3 = r2 + in;
+                int s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int i = 0; i < in; i++) {
+                    int v = x[xi + i];
+                    s0 += w[r0 + i] * v;
+                    s1 += w[r1 + i] * v;
+                    s2 += w[r2 + i] * v;
+                    s3 += w[r3 + i] * v;
+                }
+                next[yi + o] = activate(s0 * scales[o] * inputScale + b[o], relu);
+                next[yi + o + 1] = activate(s1 * scales[o + 1] * inputScale + b[o + 1], relu);
+                next[yi + o + 2] = activate(s2 * scales[o + 2] * inputScale + b[o + 2], relu);
+                next[yi + o + 3] = activate(s3 * scales[o + 3] * inputScale + b[o + 3], relu);
+            }
+            for (; o < out; o++) {
+                int r = o * in;
+                int s = 0;
+                for (int i = 0; i < in; i++) {
+                    s += w[r + i] * x[xi + i];
+                }
+                next[yi + o] = activate(s * scales[o] * inputScale + b[o], relu);
+            }
+        }
+    }
+
+    private static float activate(float v, boolean relu) {
+        return relu && v < 0 ? 0 : v;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.cauthnet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Int8 snapshot of a {@link TemplateIndex} for matching in integer arithmetic.
+ *
+ * Every template is stored as {@code dimension} signed bytes plus one float scale (symmetric,
+ * largest magnitude maps to 127), a quarter of the float matrix. A query is quantized the same
+ * way, and the squared distance is expanded as
+ * {@code sq^2 * |q|^2 + sr^2 * |r|^2 - 2 * sq * sr * (q . r)}, where the dot product and the
+ * rows' squared norms are exact int sums; only the final combination is in float. The snapshot
+ * does not follow later changes to the source index. Queries allocate their quantized copy,
+ * so concurrent queries are safe.
+ */
+public class QuantizedTemplateIndex implements TemplateMatcher {
+
+    private final int dimension;
+    private final byte[] matrix;
+    private final float[] scales;
+    private final int[] squaredNorms;
+    private final int[] owners;
+    private final List<String> users;
+    private final int rows;
+
+    public QuantizedTemplateIndex(TemplateIndex source) {
+        dimension = source.dimension();
+        rows = source.size();
+        matrix = new byte[rows * dimension];
+        scales = new float[rows];
+        squaredNorms = new int[rows];
+        owners = new int[rows];
+        users = new ArrayList<>(source.users());
+        float[] values = source.matrix();
+        for (int r = 0; r < rows; r++) {
+            scales[r] = quantize(values, r * dimension, matrix, r * dimension, dimension);
+            squaredNorms[r] = dot(matrix, r * dimension, matrix, r * dimension, dimension);
+            owners[r] = source.ownerOf(r);
+        }
+    }
+
+    /**
+     * Writes {@code count} values as int8 and returns the scale that maps them back. An all-zero
+     * vector gets scale 0.
+     */
+    public static float quantize(float[] values, int offset, byte[] out, int outOffset, int count) {
+        float max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, Math.abs(values[offset + i]));
+        }
+        if (max == 0) {
+            for (int i = 0; i < count; i++) {
+                out[outOffset + i] = 0;
+            }
+            return 0;
+        }
+        float inverse = 127 / max;
+        for (int i = 0; i < count; i++) {
+            out[outOffset + i] = (byte) Math.round(values[offset + i] * inverse);
+        }
+        return max / 127;
+    }
+
+    // Integer dot product; 32 dimensions of +-127 stay far below int overflow
+    static int dot(byte[] a, int aOffset, byte[] b, int bOffset, int count) {
+        int sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return rows == 0;
+    }
+
+    @Override
+    public String userOf(int row) {
+        return users.get(owners[row]);
+    }
+
+    // Bytes held by the templates themselves, for comparison with the float matrix
+    public int templateBytes() {
+        return matrix.length + scales.length * 4 + squaredNorms.length * 4;
+    }
+
+    @Override
+    public int nearest(float[] query, int k, int[] outRows, float[] outDistances) {
+        if (k <= 0) return 0;
+        byte[] q = new byte[dimension];
+        float queryScale = quantize(query, 0, q, 0, dimension);
+        float queryTerm = queryScale * queryScale * dot(q, 0, q, 0, dimension);
+        int found = 0;
+        for (int r = 0; r < rows; r++) {
+            float d = squaredDistance(q, queryScale, queryTerm, r);
+            if (found == k && d >= outDistances[k - 1]) continue;
+            int pos = Math.min(found, k - 1);
+            while (pos > 0 && outDistances[pos - 1] > d) {
+                outDistances[pos] = outDistances[pos - 1];
+                outRows[pos] = outRows[pos - 1];
+                pos--;
+            }
+            outDistances[pos] = d;
+            outRows[pos] = r;
+            if (found < k) found++;
+        }
+        for (int i = 0; i < found; i++) {
+            outDistances[i] = (float) Math.sqrt(outDistances[i]);
+        }
+        return found;
+    }
+
+    @Override
+    public TemplateIndex.Match nearest(float[] query) {
+        int[] row = new int[1];
+        float[] distance = new float[1];
+        if (nearest(query, 1, row, distance) == 0) return null;
+        return new TemplateIndex.Match(userOf(row[0]), row[0], distance[0]);
+    }
+
+    @Override
+    public TemplateIndex.Match closestUserUnder(float[] query, float threshold) {
+        TemplateIndex.Match match = nearest(query);
+        return match != null && match.distance < threshold ? match : null;
+    }
+
+    @Override
+    public TemplateIndex.Match nearestOf(float[] query, String user) {
+        int id = users.indexOf(user);
+        if (id < 0) return null;
+        byte[] q = new byte[dimension];
+        float queryScale = quantize(query, 0, q, 0, dimension);
+        float queryTerm = queryScale * queryScale * dot(q, 0, q, 0, dimension);
+        float bound = Float.POSITIVE_INFINITY;
+        int best = -1;
+        for (int r = 0; r < rows; r++) {
+            if (owners[r] != id) continue;
+            float d = squaredDistance(q, queryScale, queryTerm, r);
+            if (d < bound) {
+                bound = d;
+                best = r;
+            }
+        }
+        if (best < 0) return null;
+        return new TemplateIndex.Match(user, best, (float) Math.sqrt(bound));
+    }
+
+    private float squaredDistance(byte[] q, float queryScale, float queryTerm, int row) {
+        float rowScale = scales[row];
+        int cross = dot(q, 0, matrix, row * dimension, dimension);
+        float d = queryTerm + rowScale * rowScale * squaredNorms[row] - 2 * queryScale * rowScale * cross;
+        return Math.max(0, d); // Rounding can push a near-zero distance slightly negative
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.cauthnet;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer, single-consumer ring of raw sensor samples.
+ *
+ * Samples are copied into preallocated parallel arrays, so neither side allocates or blocks.
+ * The producer fills a slot and then publishes it with an ordered write of its position; the
+ * consumer reads that position, which makes every slot before it visible, and hands its own
+ * position back the same way once the slots have been read. The producer caches the
+ * consumer's position and only re-reads it when the cached one says the ring is full. When the
+ * ring is full the new sample is dropped and counted as an overrun rather than overwriting
+ * samples the consumer has not read yet.
+ *
+ * {@link #offer} must only be called from one thread and {@link #drain} and {@link #clear}
+ * only from one other; the counters may be read from anywhere.
+ */
+public class SampleRing {
+
+    public interface Consumer {
+        void onSample(int sensor, long timestampNanos, float x, float y, float z);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int[] sensors;
+    private final long[] timestamps;
+    private final float[] values;
+
+    // Next slot the producer writes, and the first slot the consumer has not read
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    // Producer's view of head
+    private long cachedHead;
+    private volatile int maxBacklog;
+
+    /**
+     * @param capacity slots in the ring; rounded up to a power of two
+     */
+    public SampleRing(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid ring capacity " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.sensors = new int[size];
+        this.timestamps = new long[size];
+        this.values = new float[size * 3];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Producer thread. Returns false, and counts an overrun, if the ring is full
+    public boolean offer(int sensor, long timestampNanos, float x, float y, float z) {
+        long t = tail.get();
+        if (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                overruns.lazySet(overruns.get() + 1);
+                return false;
+            }
+        }
+        int slot = (int) t & mask;
+        sensors[slot] = sensor;
+        timestamps[slot] = timestampNanos;
+        values[slot * 3] = x;
+        values[slot * 3 + 1] = y;
+        values[slot * 3 + 2] = z;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer thread. Hands every sample published before the call to the consumer, oldest
+     * first, and returns how many there were.
+     */
+    public int drain(Consumer consumer) {
+        long h = head.get();
+        long t = tail.get();
+        int count = (int) (t - h);
+        if (count == 0) return 0;
+        if (count > maxBacklog) {
+            maxBacklog = count;
+        }
+        for (long i = h; i < t; i++) {
+            int slot = (int) i & mask;
+            consumer.onSample(sensors[slot], timestamps[slot],
+                    values[slot * 3], values[slot * 3 + 1], values[slot * 3 + 2]);
+        }
+        head.lazySet(t);
+        return count;
+    }
+
+    // Consumer thread. Discards everything published so far
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    // Samples accepted since construction
+    public long published() {
+        return tail.get();
+    }
+
+    // Samples dropped because the consumer had fallen a full ring behind
+    public long overruns() {
+        return overruns.get();
+    }
+
+    // Largest number of samples found waiting by a single drain
+    public int maxBacklog() {
+        return maxBacklog;
+    }
+}
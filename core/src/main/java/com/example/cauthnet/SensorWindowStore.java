@@ -0,0 +1,174 @@
+package com.example.cauthnet;
+
+/**
+ * Fixed-size sample store for the accelerometer, gyroscope and magnetometer windows.
+ *
+ * Each sensor owns one preallocated float ring holding X, Y, Z and magnitude per sample, and a
+ * matching ring of event timestamps so a window knows the real time it covers.
+ * The tap moment is kept as a sample index: samples written before {@link #markTap()} form
+ * the "before" window, samples written after it form the "after" window. Adding a sample
+ * never allocates.
+ */
+public class SensorWindowStore {
+
+    public static final int SENSOR_ACCEL = 0;
+    public static final int SENSOR_GYRO = 1;
+    public static final int SENSOR_MAG = 2;
+    public static final int SENSOR_COUNT = 3;
+
+    public static final int CHANNELS = 4; // X, Y, Z, M
+
+    private static final int NO_TAP = -1;
+
+    private final int windowSize;
+    private final int capacity;
+    // Post-tap samples cycle inside this many slots so the before window is never overwritten
+    private final int postSpan;
+
+    private final float[][] rings = new float[SENSOR_COUNT][];
+    private final long[][] timestamps = new long[SENSOR_COUNT][];
+    private final int[] counts = new int[SENSOR_COUNT];
+    private final int[] tapCounts = new int[SENSOR_COUNT];
+
+    private final Window[] beforeWindows = new Window[SENSOR_COUNT];
+    private final Window[] afterWindows = new Window[SENSOR_COUNT];
+
+    public SensorWindowStore(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.capacity = windowSize * 2;
+        this.postSpan = capacity - windowSize;
+        for (int sensor = 0; sensor < SENSOR_COUNT; sensor++) {
+            rings[sensor] = new float[capacity * CHANNELS];
+            timestamps[sensor] = new long[capacity];
+            tapCounts[sensor] = NO_TAP;
+            beforeWindows[sensor] = new Window(sensor);
+            afterWindows[sensor] = new Window(sensor);
+        }
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    // timestampNanos is the SensorEvent timestamp (elapsed realtime clock)
+    public void add(int sensor, long timestampNanos, float x, float y, float z) {
+        write(sensor, timestampNanos, x, y, z, (float) Math.sqrt(x * x + y * y + z * z));
+    }
+
+    // Adds one aligned frame from FrameAligner: X, Y, Z, M for every sensor at one timestamp
+    public void addFrame(long timestampNanos, float[] frame, int offset) {
+        for (int sensor = 0; sensor < SENSOR_COUNT; sensor++) {
+            int base = offset + sensor * CHANNELS;
+            if (Float.isNaN(frame[base])) continue;  // Sensor absent from this frame
+            write(sensor, timestampNanos, frame[base], frame[base + 1], frame[base + 2], frame[base + 3]);
+        }
+    }
+
+    private void write(int sensor, long timestampNanos, float x, float y, float z, float m) {
+        int index = slotOf(sensor, counts[sensor]);
+        timestamps[sensor][index] = timestampNanos;
+        int slot = index * CHANNELS;
+        float[] ring = rings[sensor];
+        ring[slot] = x;
+        ring[slot + 1] = y;
+        ring[slot + 2] = z;
+        ring[slot + 3] = m;
+        counts[sensor]++;
+    }
+
+    // Freezes the current before windows; later samples go to the after windows
+    public void markTap() {
+        for (int sensor = 0; sensor < SENSOR_COUNT; sensor++) {
+            tapCounts[sensor] = counts[sensor];
+        }
+    }
+
+    public boolean isTapped() {
+        return tapCounts[0] != NO_TAP;
+    }
+
+    public void reset() {
+        for (int sensor = 0; sensor < SENSOR_COUNT; sensor++) {
+            counts[sensor] = 0;
+            tapCounts[sensor] = NO_TAP;
+        }
+    }
+
+    // The returned view is reused; it reflects the store at the time of the call
+    public Window before(int sensor) {
+        int end = tapCounts[sensor] == NO_TAP ? counts[sensor] : tapCounts[sensor];
+        int start = Math.max(0, end - windowSize);
+        return beforeWindows[sensor].set(start, end - start);
+    }
+
+    public Window after(int sensor) {
+        int tap = tapCounts[sensor];
+        if (tap == NO_TAP) {
+            return afterWindows[sensor].set(0, 0);
+        }
+        int end = counts[sensor];
+        int start = Math.max(tap, end - windowSize);
+        return afterWindows[sensor].set(start, end - start);
+    }
+
+    private int slotOf(int sensor, int sampleIndex) {
+        int tap = tapCounts[sensor];
+        if (tap == NO_TAP || sampleIndex < tap) {
+            return sampleIndex % capacity;
+        }
+        return (tap + (sampleIndex - tap) % postSpan) % capacity;
+    }
+
+    /**
+     * Read-only view over a run of consecutive samples of one sensor, oldest first.
+     */
+    public final class Window {
+        private final int sensor;
+        private int start;
+        private int size;
+
+        private Window(int sensor) {
+            this.sensor = sensor;
+        }
+
+        private Window set(int start, int size) {
+            this.start = start;
+            this.size = size;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public float get(int sample, int channel) {
+            return rings[sensor][slotOf(sensor, start + sample) * CHANNELS + channel];
+        }
+
+        // Raw ring access for FeatureKernel: sample s starts at data()[offsetOf(s)]
+        float[] data() {
+            return rings[sensor];
+        }
+
+        int offsetOf(int sample) {
+            return slotOf(sensor, start + sample) * CHANNELS;
+        }
+
+        public long timestampNanos(int sample) {
+            return timestamps[sensor][slotOf(sensor, start + sample)];
+        }
+
+        // Time between the oldest and newest sample, 0 with fewer than two samples
+        public long spanNanos() {
+            if (size < 2) return 0;
+            return timestampNanos(size - 1) - timestampNanos(0);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.cauthnet;
+
+/**
+ * Wald's sequential probability ratio test over the match distances of successive windows.
+ *
+ * Distances are modelled as normal under both hypotheses, genuine user and impostor, with
+ * means and standard deviations fitted offline (cauthnet-eval --sequential prints them). Each
+ * window adds its log likelihood ratio, log p(d | genuine) - log p(d | impostor), to a running
+ * sum. The test accepts once the sum reaches log((1 - beta) / alpha) and rejects once it falls
+ * to log(beta / (1 - alpha)), where alpha is the tolerated false accept rate and beta the
+ * false reject rate; by Wald's bounds the error rates hold roughly as long as the model fits
+ * and windows are independent. Clear cases cross a bound after a window or two, borderline ones
+ * take more. A sequence still undecided after {@code maxWindows} is rejected, since it never
+ * gave enough evidence to let anyone in. Not thread-safe.
+ */
+public class SequentialDecision {
+
+    public enum Outcome {
+        PENDING,
+        ACCEPT,
+        REJECT
+    }
+
+    private final float genuineMean;
+    private final float genuineSigma;
+    private final float impostorMean;
+    private final float impostorSigma;
+    private final double acceptBound;
+    private final double rejectBound;
+    private final int maxWindows;
+
+    private double logLikelihoodRatio;
+    private int windows;
+    private Outcome outcome = Outcome.PENDING;
+
+    /**
+     * @param falseAcceptRate alpha, the tolerated probability of accepting an impostor
+     * @param falseRejectRate beta, the tolerated probability of rejecting the genuine user
+     */
+    public SequentialDecision(float genuineMean, float genuineSigma, float impostorMean, float impostorSigma,
+                              float falseAcceptRate, float falseRejectRate, int maxWindows) {
+        if (genuineSigma <= 0 || impostorSigma <= 0 || genuineMean >= impostorMean
+                || falseAcceptRate <= 0 || falseRejectRate <= 0 || falseAcceptRate + falseRejectRate >= 1
+                || maxWindows <= 0) {
+            throw new IllegalArgumentException("Invalid sequential test configuration");
+        }
+        this.genuineMean = genuineMean;
+        this.genuineSigma = genuineSigma;
+        this.impostorMean = impostorMean;
+        this.impostorSigma = impostorSigma;
+        this.acceptBound = Math.log((1 - falseRejectRate) / falseAcceptRate);
+        this.rejectBound = Math.log(falseRejectRate / (1 - falseAcceptRate));
+        this.maxWindows = maxWindows;
+    }
+
+    // Adds one window's distance and returns the outcome so far; reset() before the next sequence
+    public Outcome add(float distance) {
+        if (outcome != Outcome.PENDING) {
+            throw new IllegalStateException("Already decided " + outcome);
+        }
+        logLikelihoodRatio += windowLogLikelihoodRatio(distance);
+        windows++;
+        if (logLikelihoodRatio >= acceptBound) {
+            outcome = Outcome.ACCEPT;
+        } else if (logLikelihoodRatio <= rejectBound || windows >= maxWindows) {
+            outcome = Outcome.REJECT;
+        }
+        return outcome;
+    }
+
+    // Evidence from one distance; positive favours the genuine user
+    public double windowLogLikelihoodRatio(float distance) {
+        double genuine = (distance - genuineMean) / genuineSigma;
+        double impostor = (distance - impostorMean) / impostorSigma;
+        return Math.log(impostorSigma / genuineSigma) - 0.5 * (genuine * genuine - impostor * impostor);
+    }
+
+    public void reset() {
+        logLikelihoodRatio = 0;
+        windows = 0;
+        outcome = Outcome.PENDING;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getWindows() {
+        return windows;
+    }
+
+    public int getMaxWindows() {
+        return maxWindows;
+    }
+
+    public double getLogLikelihoodRatio() {
+        return logLikelihoodRatio;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.cauthnet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped random access to a file written by {@link SessionRecorder}.
+ *
+ * Opening reads only the header and the chunk index (or, for a file that was never closed, the
+ * chunk headers up to the first incomplete chunk). Events are then addressed by a global index
+ * in file order and decoded straight from the mapping. Checksums are only checked by
+ * {@link #verify()}. Not thread-safe.
+ */
+public class SessionReader implements Closeable {
+
+    public interface Visitor {
+        void onSample(int sensor, long timestampNanos, float x, float y, float z);
+
+        void onTap(long timestampNanos, int kind);
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer map;
+    private final String label;
+    private final long createdMillis;
+
+    private int chunkCount;
+    private long[] chunkOffsets = new long[16];
+    private long[] chunkMin = new long[16];
+    private long[] chunkMax = new long[16];
+    private int[] firstEvent = new int[17]; // firstEvent[c + 1] - firstEvent[c] events in chunk c
+
+    public SessionReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.limit() < 22 || map.getInt(0) != SessionRecorder.MAGIC) {
+                throw new IOException("Not a session file: " + path);
+            }
+            if (map.getShort(4) != SessionRecorder.VERSION) {
+                throw new IOException("Unsupported session format version " + map.getShort(4));
+            }
+            createdMillis = map.getLong(8);
+            byte[] name = new byte[map.getShort(20) & 0xFFFF];
+            map.position(22);
+            map.get(name);
+            label = new String(name, SessionRecorder.UTF_8);
+            if (!readIndex(22 + name.length)) {
+                scanChunks(22 + name.length);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    public int eventCount() {
+        return firstEvent[chunkCount];
+    }
+
+    public long chunkMinTimestamp(int chunk) {
+        return chunkMin[chunk];
+    }
+
+    public long chunkMaxTimestamp(int chunk) {
+        return chunkMax[chunk];
+    }
+
+    // A SensorWindowStore sensor or SessionRecorder.TYPE_TAP
+    public int type(int event) {
+        return map.get(position(event));
+    }
+
+    // Microsecond precision, except for the first event of each chunk
+    public long timestampNanos(int event) {
+        int chunk = chunkOf(event);
+        int position = recordPosition(chunk, event);
+        return map.getLong((int) chunkOffsets[chunk] + 8) + map.getInt(position + 1) * 1000L;
+    }
+
+    // Axis 0, 1 or 2; for a tap, axis 0 is the tap kind
+    public float value(int event, int axis) {
+        return map.getFloat(position(event) + 5 + axis * 4);
+    }
+
+    /**
+     * First event of the first chunk that may contain timestamps at or after the given one.
+     * Events inside a chunk are in arrival order, which can be slightly out of timestamp order
+     * across sensors, so callers should filter by timestamp themselves.
+     */
+    public int seek(long timestampNanos) {
+        for (int c = 0; c < chunkCount; c++) {
+            if (chunkMax[c] >= timestampNanos) return firstEvent[c];
+        }
+        return eventCount();
+    }
+
+    public void read(Visitor visitor) {
+        read(0, eventCount(), visitor);
+    }
+
+    // Visits events [from, to) in file order
+    public void read(int from, int to, Visitor visitor) {
+        int chunk = from < to ? chunkOf(from) : 0;
+        for (int event = from; event < to; event++) {
+            while (event >= firstEvent[chunk + 1]) chunk++;
+            long base = map.getLong((int) chunkOffsets[chunk] + 8);
+            int position = recordPosition(chunk, event);
+            int type = map.get(position);
+            long timestamp = base + map.getInt(position + 1) * 1000L;
+            float x = map.getFloat(position + 5);
+            if (type == SessionRecorder.TYPE_TAP) {
+                visitor.onTap(timestamp, (int) x);
+            } else {
+                visitor.onSample(type, timestamp, x, map.getFloat(position + 9), map.getFloat(position + 13));
+            }
+        }
+    }
+
+    // Checks every chunk's CRC32; returns the index of the first corrupt chunk, or -1
+    public int verify() {
+        CRC32 crc = new CRC32();
+        byte[] scratch = new byte[8192];
+        for (int c = 0; c < chunkCount; c++) {
+            int start = (int) chunkOffsets[c] + SessionRecorder.CHUNK_HEADER_SIZE;
+            int remaining = (firstEvent[c + 1] - firstEvent[c]) * SessionRecorder.RECORD_SIZE;
+            crc.reset();
+            map.position(start);
+            while (remaining > 0) {
+                int n = Math.min(remaining, scratch.length);
+                map.get(scratch, 0, n);
+                crc.update(scratch, 0, n);
+                remaining -= n;
+            }
+            if ((int) crc.getValue() != map.getInt((int) chunkOffsets[c] + 32)) return c;
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int position(int event) {
+        return recordPosition(chunkOf(event), event);
+    }
+
+    private int recordPosition(int chunk, int event) {
+        return (int) chunkOffsets[chunk] + SessionRecorder.CHUNK_HEADER_SIZE
+                + (event - firstEvent[chunk]) * SessionRecorder.RECORD_SIZE;
+    }
+
+    private int chunkOf(int event) {
+        if (event < 0 || event >= eventCount()) {
+            throw new IndexOutOfBoundsException("Event " + event + " of " + eventCount());
+        }
+        // Chunks are never empty, so firstEvent is strictly increasing
+        int i = Arrays.binarySearch(firstEvent, 0, chunkCount + 1, event);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    // Falls back to scanning, with nothing added, unless every entry is a chunk inside the file
+    private boolean readIndex(long dataStart) {
+        int size = map.limit();
+        if (size < SessionRecorder.TRAILER_SIZE || map.getInt(size - 4) != SessionRecorder.INDEX_MAGIC) {
+            return false;
+        }
+        int chunks = map.getInt(size - 8);
+        long start = size - SessionRecorder.TRAILER_SIZE - (long) chunks * SessionRecorder.INDEX_ENTRY_SIZE;
+        if (chunks < 0 || start < 0) {
+            return false;
+        }
+        for (int c = 0; c < chunks; c++) {
+            int entry = (int) start + c * SessionRecorder.INDEX_ENTRY_SIZE;
+            long offset = map.getLong(entry);
+            int events = map.getInt(entry + 24);
+            if (offset < dataStart || events <= 0
+                    || offset + SessionRecorder.CHUNK_HEADER_SIZE + (long) events * SessionRecorder.RECORD_SIZE > start) {
+                chunkCount = 0;
+                return false;
+            }
+            addChunk(offset, map.getLong(entry + 8), map.getLong(entry + 16), events);
+        }
+        return true;
+    }
+
+    // Walks the chunk headers of a file that has no index, stopping at the first incomplete chunk
+    private void scanChunks(long offset) {
+        int size = map.limit();
+        while (offset + SessionRecorder.CHUNK_HEADER_SIZE <= size) {
+            int o = (int) offset;
+            if (map.getInt(o) != SessionRecorder.CHUNK_MAGIC) break;
+            int events = map.getInt(o + 4);
+            long end = offset + SessionRecorder.CHUNK_HEADER_SIZE + (long) events * SessionRecorder.RECORD_SIZE;
+            if (events <= 0 || end > size) break;
+            addChunk(offset, map.getLong(o + 16), map.getLong(o + 24), events);
+            offset = end;
+        }
+    }
+
+    private void addChunk(long offset, long min, long max, int events) {
+        if (chunkCount == chunkOffsets.length) {
+            int capacity = chunkCount * 2;
+            chunkOffsets = Arrays.copyOf(chunkOffsets, capacity);
+            chunkMin = Arrays.copyOf(chunkMin, capacity);
+            chunkMax = Arrays.copyOf(chunkMax, capacity);
+            firstEvent = Arrays.copyOf(firstEvent, capacity + 1);
+        }
+        chunkOffsets[chunkCount] = offset;
+        chunkMin[chunkCount] = min;
+        chunkMax[chunkCount] = max;
+        firstEvent[chunkCount + 1] = firstEvent[chunkCount] + events;
+        chunkCount++;
+    }
+}
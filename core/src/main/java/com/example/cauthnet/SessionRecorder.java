@@ -0,0 +1,233 @@
+package com.example.cauthnet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Records raw sensor events and tap markers to an append-only, chunked binary file.
+ *
+ * Layout (little-endian): file header with magic "CASR", format version (short), reserved
+ * (short), creation time in epoch millis (long), events per chunk (int) and a length-prefixed
+ * UTF-8 label. Then chunks, each a 36-byte header (magic "CHNK", event count, base timestamp,
+ * min and max timestamp, CRC32 of the records) followed by fixed 17-byte records: type (byte,
+ * a SensorWindowStore sensor or {@link #TYPE_TAP}), signed microseconds from the chunk base
+ * timestamp (int) and X, Y, Z (floats). A tap stores its kind in X. Closing appends an index of
+ * every chunk (offset, min and max timestamp, count) and a trailer with the chunk count and
+ * magic "CIDX"; a file cut short by a crash is still readable chunk by chunk.
+ *
+ * Events are copied into preallocated chunk buffers on the caller's thread; full chunks are
+ * checksummed and written by a background thread. If the writer falls behind and every
+ * buffer is in use, events are dropped and counted rather than blocking the caller. All
+ * methods except {@link #getEventsDropped()} must be called from one thread.
+ */
+public class SessionRecorder implements Closeable {
+
+    public static final int TYPE_TAP = SensorWindowStore.SENSOR_COUNT;
+    public static final int TAP_ENROLL = 0;
+    public static final int TAP_AUTHENTICATE = 1;
+
+    static final int MAGIC = 0x52534143; // "CASR"
+    static final int CHUNK_MAGIC = 0x4B4E4843; // "CHNK"
+    static final int INDEX_MAGIC = 0x58444943; // "CIDX"
+    static final short VERSION = 1;
+    static final int CHUNK_HEADER_SIZE = 36;
+    static final int RECORD_SIZE = 17;
+    static final int INDEX_ENTRY_SIZE = 28;
+    static final int TRAILER_SIZE = 8;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BUFFERS = 4;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileOutputStream out;
+    private final FileChannel channel;
+    private final int chunkEvents;
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS);
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(BUFFERS + 1);
+    private final Thread writer;
+
+    // Caller thread
+    private ByteBuffer current;
+    private int count;
+    private long base, min, max;
+    private volatile int eventsDropped;
+    private boolean closed;
+
+    // Writer thread; offset, min, max and count per written chunk
+    private long[] index = new long[64];
+    private int chunksWritten;
+    private volatile IOException failure;
+
+    public SessionRecorder(File file, String label, int chunkEvents) throws IOException {
+        this.chunkEvents = chunkEvents;
+        this.out = new FileOutputStream(file);
+        this.channel = out.getChannel();
+
+        byte[] name = label.getBytes(UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(22 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) 0);
+        header.putLong(System.currentTimeMillis());
+        header.putInt(chunkEvents);
+        header.putShort((short) name.length);
+        header.put(name);
+        header.flip();
+        writeFully(header);
+
+        for (int i = 0; i < BUFFERS; i++) {
+            free.add(ByteBuffer.allocate(CHUNK_HEADER_SIZE + chunkEvents * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        writer = new Thread(this::writeChunks, "session-writer");
+        writer.start();
+    }
+
+    public void record(int sensor, long timestampNanos, float x, float y, float z) {
+        append(sensor, timestampNanos, x, y, z);
+    }
+
+    public void recordTap(long timestampNanos, int kind) {
+        append(TYPE_TAP, timestampNanos, kind, 0, 0);
+    }
+
+    public int getEventsDropped() {
+        return eventsDropped;
+    }
+
+    private void append(int type, long timestampNanos, float x, float y, float z) {
+        if (closed) return;
+        if (current != null && count > 0 && Math.abs((timestampNanos - base) / 1000) > Integer.MAX_VALUE) {
+            submitCurrent();
+        }
+        if (current == null) {
+            current = free.poll();
+            if (current == null) {
+                eventsDropped++;
+                return;
+            }
+            count = 0;
+        }
+        if (count == 0) {
+            base = min = max = timestampNanos;
+        }
+        min = Math.min(min, timestampNanos);
+        max = Math.max(max, timestampNanos);
+
+        int position = CHUNK_HEADER_SIZE + count * RECORD_SIZE;
+        current.put(position, (byte) type);
+        current.putInt(position + 1, (int) ((timestampNanos - base) / 1000));
+        current.putFloat(position + 5, x);
+        current.putFloat(position + 9, y);
+        current.putFloat(position + 13, z);
+        if (++count == chunkEvents) {
+            submitCurrent();
+        }
+    }
+
+    private void submitCurrent() {
+        current.putInt(0, CHUNK_MAGIC);
+        current.putInt(4, count);
+        current.putLong(8, base);
+        current.putLong(16, min);
+        current.putLong(24, max);
+        current.limit(CHUNK_HEADER_SIZE + count * RECORD_SIZE);
+        filled.add(current); // Never full: it has room for every buffer plus END
+        current = null;
+        count = 0;
+    }
+
+    private void writeChunks() {
+        CRC32 crc = new CRC32();
+        while (true) {
+            ByteBuffer chunk;
+            try {
+                chunk = filled.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (chunk == END) return;
+            if (failure == null) {
+                try {
+                    crc.reset();
+                    crc.update(chunk.array(), CHUNK_HEADER_SIZE, chunk.limit() - CHUNK_HEADER_SIZE);
+                    chunk.putInt(32, (int) crc.getValue());
+                    long offset = channel.position();
+                    writeFully(chunk);
+                    addIndexEntry(offset, chunk.getLong(16), chunk.getLong(24), chunk.getInt(4));
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            chunk.clear();
+            free.add(chunk);
+        }
+    }
+
+    private void addIndexEntry(long offset, long min, long max, int events) {
+        if ((chunksWritten + 1) * 4 > index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        int i = chunksWritten++ * 4;
+        index[i] = offset;
+        index[i + 1] = min;
+        index[i + 2] = max;
+        index[i + 3] = events;
+    }
+
+    /**
+     * Flushes the last partial chunk, waits for the writer, appends the chunk index and closes
+     * the file. Throws the first write error, if any happened.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (current != null && count > 0) {
+            submitCurrent();
+        }
+        filled.add(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (failure == null) {
+                ByteBuffer footer = ByteBuffer.allocate(chunksWritten * INDEX_ENTRY_SIZE + TRAILER_SIZE)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                for (int c = 0; c < chunksWritten; c++) {
+                    footer.putLong(index[c * 4]);
+                    footer.putLong(index[c * 4 + 1]);
+                    footer.putLong(index[c * 4 + 2]);
+                    footer.putInt((int) index[c * 4 + 3]);
+                }
+                footer.putInt(chunksWritten);
+                footer.putInt(INDEX_MAGIC);
+                footer.flip();
+                writeFully(footer);
+                out.getFD().sync();
+            }
+        } finally {
+            out.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
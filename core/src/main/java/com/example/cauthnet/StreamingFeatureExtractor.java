@@ -0,0 +1,125 @@
+package com.example.cauthnet;
+
+/**
+ * Maintains the before/after-tap window statistics for all three sensors as samples arrive,
+ * so building the 144-value feature vector does not rescan any window.
+ *
+ * Per sensor the layout is 48 values: for each of X, Y, Z, M the before-tap mean, std, min
+ * and max, then the same for the after-tap window, then the after minus before differences.
+ *
+ * In continuous mode there is no tap: new samples enter the after window and samples leaving
+ * it move into the before window, so the two always cover the latest 2 * windowSize samples.
+ */
+public class StreamingFeatureExtractor {
+
+    public static final int FEATURES_PER_SENSOR = 48;
+    public static final int FEATURE_COUNT = FEATURES_PER_SENSOR * SensorWindowStore.SENSOR_COUNT;
+
+    private final WindowStatistics[] before = new WindowStatistics[SensorWindowStore.SENSOR_COUNT];
+    private final WindowStatistics[] after = new WindowStatistics[SensorWindowStore.SENSOR_COUNT];
+    private final boolean continuous;
+    private final float[] evicted = new float[WindowStatistics.CHANNELS];
+    private boolean tapped;
+
+    public StreamingFeatureExtractor(int windowSize) {
+        this(windowSize, false);
+    }
+
+    public StreamingFeatureExtractor(int windowSize, boolean continuous) {
+        this.continuous = continuous;
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            before[sensor] = new WindowStatistics(windowSize);
+            after[sensor] = new WindowStatistics(windowSize);
+        }
+    }
+
+    public void add(int sensor, float x, float y, float z) {
+        add(sensor, x, y, z, (float) Math.sqrt(x * x + y * y + z * z));
+    }
+
+    // Adds one aligned frame from FrameAligner, one sample per sensor; absent (NaN) sensors are skipped
+    public void addFrame(float[] frame, int offset) {
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            int base = offset + sensor * WindowStatistics.CHANNELS;
+            if (Float.isNaN(frame[base])) continue;
+            add(sensor, frame[base], frame[base + 1], frame[base + 2], frame[base + 3]);
+        }
+    }
+
+    private void add(int sensor, float x, float y, float z, float m) {
+        if (continuous) {
+            if (after[sensor].add(x, y, z, m, evicted)) {
+                before[sensor].add(evicted[0], evicted[1], evicted[2], evicted[3]);
+            }
+        } else {
+            (tapped ? after : before)[sensor].add(x, y, z, m);
+        }
+    }
+
+    // True once every before and after window holds windowSize samples
+    public boolean isFull() {
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            if (!before[sensor].isFull() || !after[sensor].isFull()) return false;
+        }
+        return true;
+    }
+
+    // True once every before window holds windowSize samples, all a tap snapshot reads
+    public boolean isBeforeFull() {
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            if (!before[sensor].isFull()) return false;
+        }
+        return true;
+    }
+
+    public void markTap() {
+        tapped = true;
+    }
+
+    public boolean isTapped() {
+        return tapped;
+    }
+
+    public void reset() {
+        tapped = false;
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            before[sensor].clear();
+            after[sensor].clear();
+        }
+    }
+
+    public WindowStatistics before(int sensor) {
+        return before[sensor];
+    }
+
+    public WindowStatistics after(int sensor) {
+        return after[sensor];
+    }
+
+    // Writes the FEATURE_COUNT values starting at offset
+    public void snapshot(float[] out, int offset) {
+        int index = offset;
+        for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+            WindowStatistics b = before[sensor];
+            WindowStatistics a = after[sensor];
+            for (int ch = 0; ch < WindowStatistics.CHANNELS; ch++) { // Iterate over X, Y, Z, M
+                out[index++] = b.mean(ch);
+                out[index++] = b.stdDev(ch);
+                out[index++] = b.min(ch);
+                out[index++] = b.max(ch);
+            }
+            for (int ch = 0; ch < WindowStatistics.CHANNELS; ch++) {
+                out[index++] = a.mean(ch);
+                out[index++] = a.stdDev(ch);
+                out[index++] = a.min(ch);
+                out[index++] = a.max(ch);
+            }
+            for (int ch = 0; ch < WindowStatistics.CHANNELS; ch++) {
+                out[index++] = a.mean(ch) - b.mean(ch);
+                out[index++] = a.stdDev(ch) - b.stdDev(ch);
+                out[index++] = a.min(ch) - b.min(ch);
+                out[index++] = a.max(ch) - b.max(ch);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.cauthnet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps enrolled templates up to date with the user's behaviour without re-enrollment.
+ *
+ * After a confident genuine accept, the matched template is moved a fraction {@code rate} of
+ * the way toward the new embedding (an exponential moving average) and scaled back to unit
+ * length, so old and new taps blend and no single one dominates. Updates are guarded against
+ * template poisoning: the embedding must lie within {@code maxDistance} of the template, at
+ * least {@code minMargin} closer to it than to any other user's template, and the user's
+ * templates are moved at most once per {@code minIntervalNanos}. An impostor accepted by
+ * mistake therefore shifts the template by at most {@code rate} times a small distance, and
+ * needs many accepts spread over a long time to drag it anywhere. The rate limit lives only
+ * in memory. Not thread-safe.
+ */
+public class TemplateAdapter {
+
+    public enum Result {
+        UPDATED,
+        // Too far from the template to be sure it is the user
+        NOT_CONFIDENT,
+        // Another user's template is nearly as close
+        AMBIGUOUS,
+        RATE_LIMITED
+    }
+
+    private final float maxDistance;
+    private final float minMargin;
+    private final float rate;
+    private final long minIntervalNanos;
+    private final Map<String, Long> lastUpdate = new HashMap<>();
+    private final int[] counts = new int[Result.values().length];
+    private float[] template;
+
+    /**
+     * @param maxDistance      largest embedding-to-template distance that may update it
+     * @param minMargin        how much closer the template must be than any other user's
+     * @param rate             weight of the new embedding in the moving average, in (0, 1]
+     * @param minIntervalNanos shortest time between two updates of one user's templates
+     */
+    public TemplateAdapter(float maxDistance, float minMargin, float rate, long minIntervalNanos) {
+        if (maxDistance <= 0 || minMargin < 0 || rate <= 0 || rate > 1 || minIntervalNanos < 0) {
+            throw new IllegalArgumentException("Invalid template adaptation configuration");
+        }
+        this.maxDistance = maxDistance;
+        this.minMargin = minMargin;
+        this.rate = rate;
+        this.minIntervalNanos = minIntervalNanos;
+    }
+
+    /**
+     * Folds an accepted embedding into row {@code match.row} of the index if every guard allows
+     * it. The distances are recomputed against the float templates, so a match found in an int8
+     * copy of the same index works too.
+     */
+    public Result adapt(TemplateIndex index, TemplateIndex.Match match, float[] embedding, long nowNanos) {
+        Result result = check(index, match, embedding, nowNanos);
+        counts[result.ordinal()]++;
+        if (result != Result.UPDATED) {
+            return result;
+        }
+        int dim = index.dimension();
+        if (template == null || template.length != dim) {
+            template = new float[dim];
+        }
+        index.copyTemplate(match.row, template);
+        double norm = 0;
+        for (int i = 0; i < dim; i++) {
+            template[i] += rate * (embedding[i] - template[i]);
+            norm += template[i] * template[i];
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dim; i++) {
+                template[i] *= scale;
+            }
+        }
+        index.setTemplate(match.row, template);
+        lastUpdate.put(match.user, nowNanos);
+        return result;
+    }
+
+    private Result check(TemplateIndex index, TemplateIndex.Match match, float[] embedding, long nowNanos) {
+        // The index may have changed since the match was found
+        if (match.row >= index.size() || !index.userOf(match.row).equals(match.user)) {
+            return Result.NOT_CONFIDENT;
+        }
+        Long last = lastUpdate.get(match.user);
+        if (last != null && nowNanos - last < minIntervalNanos) {
+            return Result.RATE_LIMITED;
+        }
+        float[] matrix = index.matrix();
+        int dim = index.dimension();
+        int owner = index.ownerOf(match.row);
+        float own = distance(embedding, matrix, match.row * dim, dim);
+        if (own > maxDistance) {
+            return Result.NOT_CONFIDENT;
+        }
+        for (int r = 0; r < index.size(); r++) {
+            if (index.ownerOf(r) != owner && distance(embedding, matrix, r * dim, dim) < own + minMargin) {
+                return Result.AMBIGUOUS;
+            }
+        }
+        return Result.UPDATED;
+    }
+
+    private static float distance(float[] query, float[] matrix, int offset, int dim) {
+        float sum = 0;
+        for (int i = 0; i < dim; i++) {
+            float diff = query[i] - matrix[offset + i];
+            sum += diff * diff;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    // How many adapt() calls ended with the result
+    public int getCount(Result result) {
+        return counts[result.ordinal()];
+    }
+
+    // Forgets the rate limit, e.g. after the user re-enrolled
+    public void reset() {
+        lastUpdate.clear();
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.cauthnet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enrolled templates for any number of users, several per user, in one contiguous matrix.
+ *
+ * Rows are kept in insertion order in a single {@code float[]} so nearest-neighbour queries scan
+ * memory linearly. Distances are Euclidean; each row's partial sum is abandoned as soon as it
+ * exceeds the best distance that could still matter, which skips most of the work once a close
+ * template has been seen. Not thread-safe.
+ */
+public class TemplateIndex implements TemplateMatcher {
+
+    // Partial distances are compared against the bound every this many dimensions
+    private static final int ABANDON_STRIDE = 8;
+
+    /** Nearest template found by a query. */
+    public static final class Match {
+        public final String user;
+        public final int row;
+        public final float distance;
+
+        Match(String user, int row, float distance) {
+            this.user = user;
+            this.row = row;
+            this.distance = distance;
+        }
+    }
+
+    private final int dimension;
+    private float[] matrix;
+    private int[] owners;
+    private int rows;
+
+    private final List<String> users = new ArrayList<>();
+    private final Map<String, Integer> userIds = new HashMap<>();
+
+    public TemplateIndex(int dimension) {
+        this(dimension, 16);
+    }
+
+    public TemplateIndex(int dimension, int initialCapacity) {
+        this.dimension = dimension;
+        int capacity = Math.max(1, initialCapacity);
+        this.matrix = new float[capacity * dimension];
+        this.owners = new int[capacity];
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return rows == 0;
+    }
+
+    // Users are numbered in order of first enrollment; removing a user renumbers the ones after them
+    public List<String> users() {
+        return users;
+    }
+
+    @Override
+    public String userOf(int row) {
+        return users.get(owners[row]);
+    }
+
+    // Position of the row's owner in users()
+    int ownerOf(int row) {
+        return owners[row];
+    }
+
+    public int templateCount(String user) {
+        Integer id = userIds.get(user);
+        if (id == null) return 0;
+        int count = 0;
+        for (int r = 0; r < rows; r++) {
+            if (owners[r] == id) count++;
+        }
+        return count;
+    }
+
+    public void copyTemplate(int row, float[] out) {
+        System.arraycopy(matrix, row * dimension, out, 0, dimension);
+    }
+
+    // Replaces a row in place; its owner and position are unchanged
+    public void setTemplate(int row, float[] template) {
+        if (template.length != dimension) {
+            throw new IllegalArgumentException("Template has " + template.length + " values, expected " + dimension);
+        }
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+        System.arraycopy(template, 0, matrix, row * dimension, dimension);
+    }
+
+    // Direct access for callers that scan the matrix themselves; row r starts at r * dimension()
+    float[] matrix() {
+        return matrix;
+    }
+
+    public int add(String user, float[] template) {
+        if (template.length != dimension) {
+            throw new IllegalArgumentException("Template has " + template.length + " values, expected " + dimension);
+        }
+        Integer id = userIds.get(user);
+        if (id == null) {
+            id = users.size();
+            users.add(user);
+            userIds.put(user, id);
+        }
+        if (rows == owners.length) {
+            owners = Arrays.copyOf(owners, rows * 2);
+            matrix = Arrays.copyOf(matrix, rows * 2 * dimension);
+        }
+        System.arraycopy(template, 0, matrix, rows * dimension, dimension);
+        owners[rows] = id;
+        return rows++;
+    }
+
+    // Drops the user's oldest templates until at most maxTemplates remain; with none left, the user goes too
+    public void trimUser(String user, int maxTemplates) {
+        Integer id = userIds.get(user);
+        if (id == null) return;
+        int excess = templateCount(user) - maxTemplates;
+        int write = 0;
+        for (int r = 0; r < rows; r++) {
+            if (owners[r] == id && excess > 0) {
+                excess--;
+                continue;
+            }
+            if (write != r) {
+                owners[write] = owners[r];
+                System.arraycopy(matrix, r * dimension, matrix, write * dimension, dimension);
+            }
+            write++;
+        }
+        rows = write;
+        if (maxTemplates <= 0) {
+            users.remove((int) id);
+            userIds.remove(user);
+            for (int i = id; i < users.size(); i++) {
+                userIds.put(users.get(i), i);
+            }
+            for (int r = 0; r < rows; r++) {
+                if (owners[r] > id) owners[r]--;
+            }
+        }
+    }
+
+    public void removeUser(String user) {
+        trimUser(user, 0);
+    }
+
+    public void clear() {
+        rows = 0;
+        users.clear();
+        userIds.clear();
+    }
+
+    @Override
+    public int nearest(float[] query, int k, int[] outRows, float[] outDistances) {
+        if (k <= 0) return 0;
+        int found = 0;
+        float bound = Float.POSITIVE_INFINITY; // squared distance of the current k-th best
+        for (int r = 0; r < rows; r++) {
+            float d = squaredDistance(query, r, bound);
+            if (d >= bound) continue;
+            int pos = Math.min(found, k - 1);
+            while (pos > 0 && outDistances[pos - 1] > d) {
+                outDistances[pos] = outDistances[pos - 1];
+                outRows[pos] = outRows[pos - 1];
+                pos--;
+            }
+            outDistances[pos] = d;
+            outRows[pos] = r;
+            if (found < k) found++;
+            if (found == k) bound = outDistances[k - 1];
+        }
+        for (int i = 0; i < found; i++) {
+            outDistances[i] = (float) Math.sqrt(outDistances[i]);
+        }
+        return found;
+    }
+
+    @Override
+    public Match nearest(float[] query) {
+        int[] row = new int[1];
+        float[] distance = new float[1];
+        if (nearest(query, 1, row, distance) == 0) return null;
+        return new Match(userOf(row[0]), row[0], distance[0]);
+    }
+
+    @Override
+    public Match closestUserUnder(float[] query, float threshold) {
+        float bound = threshold * threshold;
+        int best = -1;
+        for (int r = 0; r < rows; r++) {
+            float d = squaredDistance(query, r, bound);
+            if (d < bound) {
+                bound = d;
+                best = r;
+            }
+        }
+        if (best < 0) return null;
+        return new Match(userOf(best), best, (float) Math.sqrt(bound));
+    }
+
+    @Override
+    public Match nearestOf(float[] query, String user) {
+        Integer id = userIds.get(user);
+        if (id == null) return null;
+        float bound = Float.POSITIVE_INFINITY;
+        int best = -1;
+        for (int r = 0; r < rows; r++) {
+            if (owners[r] != id) continue;
+            float d = squaredDistance(query, r, bound);
+            if (d < bound) {
+                bound = d;
+                best = r;
+            }
+        }
+        if (best < 0) return null;
+        return new Match(user, best, (float) Math.sqrt(bound));
+    }
+
+    /**
+     * Squared distance from query to row, or some value >= bound as soon as the partial sum
+     * shows the row cannot beat it.
+     */
+    private float squaredDistance(float[] query, int row, float bound) {
+        float[] m = matrix;
+        int base = row * dimension;
+        float sum = 0;
+        int i = 0;
+        while (i < dimension) {
+            int end = Math.min(dimension, i + ABANDON_STRIDE);
+            for (; i < end; i++) {
+                float diff = query[i] - m[base + i];
+                sum += diff * diff;
+            }
+            if (sum >= bound) return sum;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.cauthnet;
+
+/**
+ * Read-only nearest-template queries, answered either from float templates
+ * ({@link TemplateIndex}) or from int8 ones ({@link QuantizedTemplateIndex}).
+ */
+public interface TemplateMatcher {
+
+    int size();
+
+    boolean isEmpty();
+
+    String userOf(int row);
+
+    /**
+     * Finds up to k nearest templates, closest first. Fills {@code outRows} and
+     * {@code outDistances} and returns how many were found.
+     */
+    int nearest(float[] query, int k, int[] outRows, float[] outDistances);
+
+    TemplateIndex.Match nearest(float[] query);
+
+    // Returns the nearest template's owner if it lies within threshold, otherwise null
+    TemplateIndex.Match closestUserUnder(float[] query, float threshold);
+
+    // Nearest template owned by user, or null if they have none
+    TemplateIndex.Match nearestOf(float[] query, String user);
+}
@@ -0,0 +1,363 @@
+package com.example.cauthnet;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the enrolled templates in a small binary file and keeps them cached.
+ *
+ * Layout (little-endian): magic "CATP", format version (short), reserved (short), dimension
+ * (int), then the payload and a CRC32 of everything before it. Version 1 holds a single
+ * template as {@code dimension} floats. Version 2 holds a {@link TemplateIndex}: user count and
+ * row count (ints), each user name as a length-prefixed UTF-8 string, then each row as its
+ * owner id (int) followed by {@code dimension} floats. Version 3 is version 2 with each row
+ * quantized: owner id (int), scale (float) and {@code dimension} signed bytes, as written by
+ * {@link QuantizedTemplateIndex#quantize}. Version 1 files load as one template owned by
+ * {@link #DEFAULT_USER}; version 3 rows load dequantized.
+ *
+ * The file is read once with a single channel read; later loads return the cached index until
+ * it is replaced by {@link #save(TemplateIndex)}. A quantized store writes version 3 and caches
+ * what it wrote, so the templates in memory match the ones that will be read back.
+ *
+ * {@link #saveAsync(TemplateIndex)} encodes and caches on the caller's thread and leaves the
+ * disk write to a background thread. Writes are versioned: a write queued behind a newer one
+ * is dropped, and an older file never replaces a newer one, whichever path wrote it.
+ */
+public class TemplateStore {
+
+    public static final String DEFAULT_USER = "default";
+
+    static final int MAGIC = 0x50544143; // "CATP" read as a little-endian int
+    static final short FORMAT_SINGLE = 1;
+    static final short FORMAT_INDEX = 2;
+    static final short FORMAT_INT8 = 3;
+    static final int HEADER_SIZE = 12;
+    static final int CRC_SIZE = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final int dimension;
+    private final boolean quantized;
+    private TemplateIndex cached;
+    private QuantizedTemplateIndex cachedQuantized;
+
+    // Background writes; the encoded file and its version wait in pendingWrite for the writer
+    private ExecutorService writer;
+    private ByteBuffer pendingWrite;
+    private long pendingVersion;
+    private long encodedVersion;
+    private volatile IOException writeFailure;
+    // Held while the file is replaced; writtenVersion is guarded by it
+    private final Object fileLock = new Object();
+    private long writtenVersion;
+
+    public TemplateStore(File file, int dimension) {
+        this(file, dimension, false);
+    }
+
+    public TemplateStore(File file, int dimension, boolean quantized) {
+        this.file = file;
+        this.dimension = dimension;
+        this.quantized = quantized;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the stored templates, empty if nothing is enrolled. The index is shared with the
+     * cache; callers that modify it should {@link #save(TemplateIndex)} it afterwards.
+     */
+    public synchronized TemplateIndex load() throws IOException {
+        if (cached == null) {
+            cached = file.isFile() ? read(file, dimension) : new TemplateIndex(dimension);
+        }
+        return cached;
+    }
+
+    // Int8 copy of load() for integer matching; rebuilt only after the templates are saved
+    public synchronized QuantizedTemplateIndex loadQuantized() throws IOException {
+        if (cachedQuantized == null) {
+            cachedQuantized = new QuantizedTemplateIndex(load());
+        }
+        return cachedQuantized;
+    }
+
+    // Writes the index to a temp file, renames it over the old one and makes it the cached copy
+    public synchronized void save(TemplateIndex index) throws IOException {
+        ByteBuffer buffer = encode(index, quantized);
+        write(buffer, ++encodedVersion);
+        if (quantized) {
+            buffer.rewind();
+            index = decode(buffer, dimension);
+        }
+        cached = index;
+        cachedQuantized = null;
+    }
+
+    /**
+     * Like {@link #save(TemplateIndex)}, but only the encoding and caching happen before it
+     * returns, so the index may be changed again straight away. The file is written by a
+     * background thread; if several saves queue up before it runs, only the newest is written.
+     * A failed write is kept and thrown by {@link #flush()}.
+     */
+    public synchronized void saveAsync(TemplateIndex index) throws IOException {
+        ByteBuffer buffer = encode(index, quantized);
+        boolean idle = pendingWrite == null;
+        pendingWrite = buffer;
+        pendingVersion = ++encodedVersion;
+        if (quantized) {
+            index = decode(buffer.duplicate(), dimension);
+        }
+        cached = index;
+        cachedQuantized = null;
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "template-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (idle) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Waits until every save queued so far is on disk, then throws the first background write
+     * error since the last flush, if there was one.
+     */
+    public void flush() throws IOException {
+        ExecutorService pending;
+        synchronized (this) {
+            pending = writer;
+        }
+        if (pending != null) {
+            try {
+                pending.submit(() -> { }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for template write", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Template writer failed", e.getCause());
+            }
+        }
+        IOException failure = writeFailure;
+        if (failure != null) {
+            writeFailure = null;
+            throw failure;
+        }
+    }
+
+    /**
+     * Flushes, then stops the writer thread, which otherwise lives as long as the process. The
+     * write error from the flush is still thrown; a later {@link #saveAsync(TemplateIndex)}
+     * starts a new writer.
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            ExecutorService closing;
+            synchronized (this) {
+                closing = writer;
+                writer = null;
+            }
+            if (closing != null) {
+                closing.shutdown(); // Still runs a save queued after the flush
+            }
+        }
+    }
+
+    // Writer thread
+    private void writePending() {
+        ByteBuffer buffer;
+        long version;
+        synchronized (this) {
+            buffer = pendingWrite;
+            version = pendingVersion;
+            pendingWrite = null;
+        }
+        if (buffer == null) return;
+        try {
+            write(buffer, version);
+        } catch (IOException e) {
+            if (writeFailure == null) {
+                writeFailure = e;
+            }
+        }
+    }
+
+    // Writes to a temp file and renames it over the old one, unless a newer version is already there
+    private void write(ByteBuffer buffer, long version) throws IOException {
+        synchronized (fileLock) {
+            if (version <= writtenVersion) return;
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                FileChannel channel = out.getChannel();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Cannot replace " + file);
+            }
+            writtenVersion = version;
+        }
+    }
+
+    // Drops the cached copy so the next load rereads the file
+    public synchronized void invalidate() {
+        cached = null;
+        cachedQuantized = null;
+    }
+
+    static ByteBuffer encode(TemplateIndex index) {
+        return encode(index, false);
+    }
+
+    static ByteBuffer encode(TemplateIndex index, boolean quantized) {
+        List<String> users = index.users();
+        byte[][] names = new byte[users.size()][];
+        int size = HEADER_SIZE + 8;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = users.get(i).getBytes(UTF_8);
+            size += 2 + names[i].length;
+        }
+        int dim = index.dimension();
+        size += index.size() * (quantized ? 8 + dim : 4 + dim * 4) + CRC_SIZE;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort(quantized ? FORMAT_INT8 : FORMAT_INDEX);
+        buffer.putShort((short) 0);
+        buffer.putInt(dim);
+        buffer.putInt(names.length);
+        buffer.putInt(index.size());
+        for (byte[] name : names) {
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+        float[] matrix = index.matrix();
+        byte[] row = new byte[dim];
+        for (int r = 0; r < index.size(); r++) {
+            buffer.putInt(index.ownerOf(r));
+            if (quantized) {
+                buffer.putFloat(QuantizedTemplateIndex.quantize(matrix, r * dim, row, 0, dim));
+                buffer.put(row);
+                continue;
+            }
+            for (int i = 0; i < dim; i++) {
+                buffer.putFloat(matrix[r * dim + i]);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    // Rejects files whose templates do not have expectedDimension values
+    static TemplateIndex decode(ByteBuffer buffer, int expectedDimension) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int size = buffer.remaining();
+        if (size < HEADER_SIZE + CRC_SIZE) {
+            throw new IOException("Template file too short: " + size + " bytes");
+        }
+        int start = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, size - CRC_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(start + size - CRC_SIZE)) {
+            throw new IOException("Template checksum mismatch");
+        }
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a template file");
+        }
+        short version = buffer.getShort();
+        buffer.getShort(); // reserved
+        int dimension = buffer.getInt();
+        if (dimension != expectedDimension) {
+            throw new IOException("Template dimension " + dimension + ", expected " + expectedDimension);
+        }
+        buffer.limit(start + size - CRC_SIZE);
+
+        try {
+            TemplateIndex index;
+            if (version == FORMAT_SINGLE) {
+                index = new TemplateIndex(dimension, 1);
+                float[] template = new float[dimension];
+                buffer.asFloatBuffer().get(template);
+                buffer.position(buffer.position() + dimension * 4);
+                index.add(DEFAULT_USER, template);
+            } else if (version == FORMAT_INDEX || version == FORMAT_INT8) {
+                String[] users = new String[buffer.getInt()];
+                int rows = buffer.getInt();
+                for (int i = 0; i < users.length; i++) {
+                    byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                    buffer.get(name);
+                    users[i] = new String(name, UTF_8);
+                }
+                index = new TemplateIndex(dimension, rows);
+                float[] template = new float[dimension];
+                for (int r = 0; r < rows; r++) {
+                    int owner = buffer.getInt();
+                    if (owner < 0 || owner >= users.length) {
+                        throw new IOException("Invalid template owner " + owner);
+                    }
+                    if (version == FORMAT_INT8) {
+                        float scale = buffer.getFloat();
+                        for (int i = 0; i < dimension; i++) {
+                            template[i] = buffer.get() * scale;
+                        }
+                    } else {
+                        for (int i = 0; i < dimension; i++) {
+                            template[i] = buffer.getFloat();
+                        }
+                    }
+                    index.add(users[owner], template);
+                }
+            } else {
+                throw new IOException("Unsupported template format version " + version);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Unexpected trailing bytes in template file");
+            }
+            return index;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Template file truncated", e);
+        }
+    }
+
+    private static TemplateIndex read(File file, int dimension) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    throw new EOFException("Template file truncated");
+                }
+            }
+            buffer.flip();
+            return decode(buffer, dimension);
+        }
+    }
+}
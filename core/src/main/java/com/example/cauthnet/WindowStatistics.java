@@ -0,0 +1,204 @@
+package com.example.cauthnet;
+
+/**
+ * Sliding-window mean, standard deviation, min and max over X, Y, Z and magnitude.
+ *
+ * Mean and variance are maintained with Welford updates (including removal of the sample
+ * leaving the window) and min/max with monotonic deques, so adding a sample is amortised
+ * O(1) and reading any statistic is O(1) regardless of the window size.
+ */
+public class WindowStatistics {
+
+    public static final int CHANNELS = SensorWindowStore.CHANNELS;
+
+    // Welford removal accumulates rounding error; rebuild the moments from the window this often
+    private static final int REFRESH_INTERVAL = 1024;
+
+    private final int capacity;
+    private final float[] values;
+    private int head; // slot of the oldest sample
+    private int size;
+    private int updatesSinceRefresh;
+
+    private final double[] mean = new double[CHANNELS];
+    private final double[] m2 = new double[CHANNELS];
+
+    // Monotonic deques of slot indices, one ring of `capacity` per channel
+    private final int[] minQueue;
+    private final int[] maxQueue;
+    private final int[] minHead = new int[CHANNELS];
+    private final int[] minSize = new int[CHANNELS];
+    private final int[] maxHead = new int[CHANNELS];
+    private final int[] maxSize = new int[CHANNELS];
+
+    public WindowStatistics(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.values = new float[capacity * CHANNELS];
+        this.minQueue = new int[capacity * CHANNELS];
+        this.maxQueue = new int[capacity * CHANNELS];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        updatesSinceRefresh = 0;
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            mean[ch] = 0;
+            m2[ch] = 0;
+            minHead[ch] = 0;
+            minSize[ch] = 0;
+            maxHead[ch] = 0;
+            maxSize[ch] = 0;
+        }
+    }
+
+    // Adds a sample, evicting the oldest one when the window is full
+    public void add(float x, float y, float z, float m) {
+        add(x, y, z, m, null);
+    }
+
+    /**
+     * Adds a sample like {@link #add(float, float, float, float)}. If a sample had to be evicted
+     * and {@code evicted} is non-null, its four channels are copied there and true is returned.
+     */
+    public boolean add(float x, float y, float z, float m, float[] evicted) {
+        boolean didEvict = false;
+        if (size == capacity) {
+            int oldest = head * CHANNELS;
+            if (evicted != null) {
+                System.arraycopy(values, oldest, evicted, 0, CHANNELS);
+            }
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                remove(ch, values[oldest + ch]);
+                if (minSize[ch] > 0 && minQueue[ch * capacity + minHead[ch]] == head) {
+                    minHead[ch] = (minHead[ch] + 1) % capacity;
+                    minSize[ch]--;
+                }
+                if (maxSize[ch] > 0 && maxQueue[ch * capacity + maxHead[ch]] == head) {
+                    maxHead[ch] = (maxHead[ch] + 1) % capacity;
+                    maxSize[ch]--;
+                }
+            }
+            head = (head + 1) % capacity;
+            size--;
+            didEvict = true;
+        }
+
+        int slot = (head + size) % capacity;
+        int base = slot * CHANNELS;
+        values[base] = x;
+        values[base + 1] = y;
+        values[base + 2] = z;
+        values[base + 3] = m;
+        size++;
+
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            float v = values[base + ch];
+            insert(ch, v);
+            pushMin(ch, slot, v);
+            pushMax(ch, slot, v);
+        }
+
+        if (didEvict && ++updatesSinceRefresh >= REFRESH_INTERVAL) {
+            refreshMoments();
+        }
+        return didEvict;
+    }
+
+    public float mean(int channel) {
+        return size == 0 ? 0 : (float) mean[channel];
+    }
+
+    // Population standard deviation, matching the original per-window calculation
+    public float stdDev(int channel) {
+        if (size == 0) return 0;
+        return (float) Math.sqrt(Math.max(0, m2[channel]) / size);
+    }
+
+    public float min(int channel) {
+        if (size == 0) return Float.MAX_VALUE;
+        return values[minQueue[channel * capacity + minHead[channel]] * CHANNELS + channel];
+    }
+
+    public float max(int channel) {
+        if (size == 0) return 0;
+        return values[maxQueue[channel * capacity + maxHead[channel]] * CHANNELS + channel];
+    }
+
+    private void insert(int ch, float v) {
+        double delta = v - mean[ch];
+        mean[ch] += delta / size;
+        m2[ch] += delta * (v - mean[ch]);
+    }
+
+    private void remove(int ch, float v) {
+        int remaining = size - 1;
+        if (remaining == 0) {
+            mean[ch] = 0;
+            m2[ch] = 0;
+            return;
+        }
+        double delta = v - mean[ch];
+        mean[ch] -= delta / remaining;
+        m2[ch] -= delta * (v - mean[ch]);
+    }
+
+    private void pushMin(int ch, int slot, float v) {
+        int base = ch * capacity;
+        while (minSize[ch] > 0) {
+            int back = minQueue[base + (minHead[ch] + minSize[ch] - 1) % capacity];
+            if (values[back * CHANNELS + ch] < v) break;
+            minSize[ch]--;
+        }
+        minQueue[base + (minHead[ch] + minSize[ch]) % capacity] = slot;
+        minSize[ch]++;
+    }
+
+    private void pushMax(int ch, int slot, float v) {
+        int base = ch * capacity;
+        while (maxSize[ch] > 0) {
+            int back = maxQueue[base + (maxHead[ch] + maxSize[ch] - 1) % capacity];
+            if (values[back * CHANNELS + ch] > v) break;
+            maxSize[ch]--;
+        }
+        maxQueue[base + (maxHead[ch] + maxSize[ch]) % capacity] = slot;
+        maxSize[ch]++;
+    }
+
+    private void refreshMoments() {
+        updatesSinceRefresh = 0;
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += values[((head + i) % capacity) * CHANNELS + ch];
+            }
+            double m = sum / size;
+            double sq = 0;
+            for (int i = 0; i < size; i++) {
+                double d = values[((head + i) % capacity) * CHANNELS + ch] - m;
+                sq += d * d;
+            }
+            mean[ch] = m;
+            m2[ch] = sq;
+        }
+    }
+}
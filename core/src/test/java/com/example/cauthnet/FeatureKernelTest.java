@@ -0,0 +1,186 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+public class FeatureKernelTest {
+
+    private static final int WINDOW = 10;
+    private static final int SENSORS = SensorWindowStore.SENSOR_COUNT;
+    private static final int CHANNELS = SensorWindowStore.CHANNELS;
+
+    @Test
+    public void bitIdenticalToPerStatisticHelpers() {
+        Random random = new Random(41);
+        float[] actual = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        for (int trial = 0; trial < 20_000; trial++) {
+            SensorWindowStore store = new SensorWindowStore(WINDOW);
+            // Reference deques keep the latest WINDOW samples, as the original MainActivity did
+            Deque<float[]>[] before = deques();
+            Deque<float[]>[] after = deques();
+            // Varying counts wrap the rings and leave some windows partly filled or empty
+            int beforeSamples = random.nextInt(3 * WINDOW);
+            int afterSamples = random.nextInt(3) == 0 ? 0 : random.nextInt(2 * WINDOW);
+            double scale = Math.pow(10, random.nextInt(5) - 2);
+            for (int n = 0; n < beforeSamples; n++) {
+                addFrame(store, before, random, scale);
+            }
+            store.markTap();
+            for (int n = 0; n < afterSamples; n++) {
+                addFrame(store, after, random, scale);
+            }
+
+            FeatureKernel.compute(store, actual, 0);
+            float[] expected = reference(before, after);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals("trial " + trial + ", feature " + i,
+                        Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual[i]));
+            }
+        }
+    }
+
+    @Test
+    public void writesAtTheGivenOffset() {
+        SensorWindowStore store = new SensorWindowStore(WINDOW);
+        Random random = new Random(43);
+        for (int n = 0; n < 15; n++) {
+            addFrame(store, deques(), random, 1);
+        }
+        int offset = StreamingFeatureExtractor.FEATURE_COUNT + 5;
+        float[] out = new float[offset + StreamingFeatureExtractor.FEATURE_COUNT];
+        float[] alone = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        FeatureKernel.compute(store, out, offset);
+        FeatureKernel.compute(store, alone, 0);
+        for (int i = 0; i < offset; i++) {
+            assertEquals(0, out[i], 0);
+        }
+        for (int i = 0; i < alone.length; i++) {
+            assertEquals(alone[i], out[offset + i], 0);
+        }
+    }
+
+    @Test
+    public void maxOfNegativeAxisIsNegative() {
+        SensorWindowStore store = new SensorWindowStore(WINDOW);
+        for (int n = 0; n < WINDOW; n++) {
+            store.add(SensorWindowStore.SENSOR_ACCEL, n, -9.8f - n, -1, -2);
+        }
+        float[] out = new float[StreamingFeatureExtractor.FEATURES_PER_SENSOR];
+        FeatureKernel.computeSensor(store.before(SensorWindowStore.SENSOR_ACCEL),
+                store.after(SensorWindowStore.SENSOR_ACCEL), out, 0);
+        assertEquals(-9.8f, out[3], 0);   // X max
+        assertEquals(-1, out[7], 0);      // Y max
+        assertTrue(out[15] > 0);          // Magnitude max
+    }
+
+    @Test
+    public void agreesWithStreamingStatistics() {
+        Random random = new Random(47);
+        SensorWindowStore store = new SensorWindowStore(WINDOW);
+        StreamingFeatureExtractor streaming = new StreamingFeatureExtractor(WINDOW);
+        float[] frame = new float[FrameAligner.FRAME_SIZE];
+        for (int n = 0; n < 37; n++) {
+            if (n == 30) {
+                store.markTap();
+                streaming.markTap();
+            }
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = (float) (random.nextGaussian() * 3);
+            }
+            store.addFrame(n, frame, 0);
+            streaming.addFrame(frame, 0);
+        }
+        float[] kernel = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        float[] snapshot = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        FeatureKernel.compute(store, kernel, 0);
+        streaming.snapshot(snapshot, 0);
+        for (int i = 0; i < kernel.length; i++) {
+            assertEquals("feature " + i, kernel[i], snapshot[i], 1e-4f);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Deque<float[]>[] deques() {
+        Deque<float[]>[] deques = new Deque[SENSORS];
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+            deques[sensor] = new ArrayDeque<>();
+        }
+        return deques;
+    }
+
+    private static void addFrame(SensorWindowStore store, Deque<float[]>[] reference, Random random, double scale) {
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+            float x = (float) (random.nextGaussian() * scale);
+            float y = (float) (random.nextGaussian() * scale);
+            float z = (float) (random.nextGaussian() * scale);
+            store.add(sensor, 0, x, y, z);
+            reference[sensor].addLast(new float[]{x, y, z, (float) Math.sqrt(x * x + y * y + z * z)});
+            if (reference[sensor].size() > WINDOW) {
+                reference[sensor].removeFirst();
+            }
+        }
+    }
+
+    // The original fillSensorStats layout, with the -Float.MAX_VALUE max seed
+    private static float[] reference(Deque<float[]>[] before, Deque<float[]>[] after) {
+        float[] out = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        int index = 0;
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+            float[][] b = stats(before[sensor]);
+            float[][] a = stats(after[sensor]);
+            for (float[][] block : new float[][][]{b, a}) {
+                for (int ch = 0; ch < CHANNELS; ch++) {
+                    for (int stat = 0; stat < 4; stat++) {
+                        out[index++] = block[stat][ch];
+                    }
+                }
+            }
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                for (int stat = 0; stat < 4; stat++) {
+                    out[index++] = a[stat][ch] - b[stat][ch];
+                }
+            }
+        }
+        return out;
+    }
+
+    // Mean, std, min and max per channel, each computed the way the original helpers did
+    private static float[][] stats(Deque<float[]> data) {
+        float[] mean = new float[CHANNELS];
+        float[] std = new float[CHANNELS];
+        float[] min = new float[CHANNELS];
+        float[] max = new float[CHANNELS];
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            min[ch] = Float.MAX_VALUE;
+            max[ch] = data.isEmpty() ? 0 : -Float.MAX_VALUE;
+        }
+        if (data.isEmpty()) {
+            return new float[][]{mean, std, min, max};
+        }
+        for (float[] values : data) {
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                mean[ch] += values[ch];
+                min[ch] = Math.min(min[ch], values[ch]);
+                max[ch] = Math.max(max[ch], values[ch]);
+            }
+        }
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            mean[ch] /= data.size();
+        }
+        for (float[] values : data) {
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                std[ch] += (values[ch] - mean[ch]) * (values[ch] - mean[ch]);
+            }
+        }
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            std[ch] = (float) Math.sqrt(std[ch] / data.size());
+        }
+        return new float[][]{mean, std, min, max};
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FrameAlignerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long PERIOD = 200 * MS;
+    private static final long SILENCE = 2000 * MS;
+    private static final int ACCEL = SensorWindowStore.SENSOR_ACCEL;
+    private static final int GYRO = SensorWindowStore.SENSOR_GYRO;
+    private static final int MAG = SensorWindowStore.SENSOR_MAG;
+    private static final int CHANNELS = SensorWindowStore.CHANNELS;
+
+    private final List<Long> times = new ArrayList<>();
+    private final List<float[]> frames = new ArrayList<>();
+    private final FrameAligner aligner = new FrameAligner(PERIOD, 256, 8, SILENCE, (timestampNanos, ring, offset) -> {
+        times.add(timestampNanos);
+        float[] frame = new float[FrameAligner.FRAME_SIZE];
+        System.arraycopy(ring, offset, frame, 0, frame.length);
+        frames.add(frame);
+    });
+
+    @Test
+    public void interpolatesEverySensorOnTheGrid() {
+        // Linear signals at three unrelated rates, so interpolation is exact
+        feed(new Stream(ACCEL, 1010 * MS, 3000 * MS, 7 * MS), new Stream(GYRO, 1003 * MS, 3000 * MS, 13 * MS),
+                new Stream(MAG, 1020 * MS, 3000 * MS, 50 * MS));
+
+        assertTrue(frames.size() >= 9);
+        for (int i = 0; i < frames.size(); i++) {
+            long t = times.get(i);
+            assertEquals(1200 * MS + i * PERIOD, t);
+            for (int sensor = 0; sensor < SensorWindowStore.SENSOR_COUNT; sensor++) {
+                float[] frame = frames.get(i);
+                int base = sensor * CHANNELS;
+                assertEquals(x(sensor, t), frame[base], 1e-3f);
+                assertEquals(-x(sensor, t), frame[base + 1], 1e-3f);
+                assertEquals(sensor, frame[base + 2], 0);
+                double m = Math.sqrt(2 * x(sensor, t) * x(sensor, t) + sensor * sensor);
+                assertEquals(m, frame[base + 3], 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void waitsForTheSlowestSensor() {
+        // The magnetometer's samples arrive in a batch up to a second late
+        feed(new Stream(ACCEL, 0, 1500 * MS, 10 * MS), new Stream(GYRO, 0, 1500 * MS, 10 * MS),
+                new Stream(MAG, 0, 500 * MS, 10 * MS));
+        // Frames only up to the magnetometer's last sample, none past it
+        assertEquals(3, frames.size());
+        assertEquals(400 * MS, (long) times.get(2));
+        feed(new Stream(MAG, 510 * MS, 1500 * MS, 10 * MS));
+        assertEquals(8, frames.size());
+    }
+
+    @Test
+    public void missingSensorIsLeftOutAfterSilence() {
+        // No magnetometer at all
+        feed(new Stream(ACCEL, 0, 1990 * MS, 10 * MS), new Stream(GYRO, 0, 1990 * MS, 10 * MS));
+        assertEquals(0, frames.size());
+        // Once the magnetometer has been silent for SILENCE the grid starts without it
+        feed(new Stream(ACCEL, 2000 * MS, 5000 * MS, 10 * MS), new Stream(GYRO, 2000 * MS, 5000 * MS, 10 * MS));
+        assertEquals(0, (long) times.get(0));
+        assertEquals(26, frames.size());
+
+        StreamingFeatureExtractor features = new StreamingFeatureExtractor(10);
+        for (float[] frame : frames) {
+            assertTrue(Float.isNaN(frame[MAG * CHANNELS]));
+            assertEquals(x(ACCEL, times.get(frames.indexOf(frame))), frame[ACCEL * CHANNELS], 1e-3f);
+            features.addFrame(frame, 0);
+        }
+        assertTrue(features.before(MAG).isEmpty());
+        assertTrue(features.before(ACCEL).isFull());
+        SensorWindowStore windows = new SensorWindowStore(10);
+        windows.addFrame(0, frames.get(0), 0);
+        assertEquals(0, windows.before(MAG).size());
+        assertEquals(1, windows.before(ACCEL).size());
+    }
+
+    @Test
+    public void sensorThatStopsNoLongerHoldsFramesBack() {
+        feed(new Stream(ACCEL, 0, 6000 * MS, 10 * MS), new Stream(GYRO, 0, 6000 * MS, 10 * MS),
+                new Stream(MAG, 0, 1000 * MS, 10 * MS));
+        // Frames carry on past the magnetometer's last sample, once it has been silent long enough
+        long last = times.get(times.size() - 1);
+        assertTrue(last > 3000 * MS);
+        float[] lastFrame = frames.get(frames.size() - 1);
+        assertTrue(Float.isNaN(lastFrame[MAG * CHANNELS]));
+        assertEquals(x(GYRO, last), lastFrame[GYRO * CHANNELS], 1e-3f);
+    }
+
+    @Test
+    public void outOfOrderSamplesAreDropped() {
+        aligner.add(ACCEL, 100 * MS, 1, 2, 3);
+        aligner.add(ACCEL, 100 * MS, 1, 2, 3);
+        aligner.add(ACCEL, 50 * MS, 1, 2, 3);
+        assertEquals(2, aligner.getSamplesDropped());
+    }
+
+    @Test
+    public void resetStartsANewGrid() {
+        feed(new Stream(ACCEL, 0, 1000 * MS, 10 * MS), new Stream(GYRO, 0, 1000 * MS, 10 * MS),
+                new Stream(MAG, 0, 1000 * MS, 10 * MS));
+        aligner.reset();
+        assertEquals(0, aligner.getFrameCount());
+        times.clear();
+        feed(new Stream(ACCEL, 10_050 * MS, 11_000 * MS, 10 * MS), new Stream(GYRO, 10_050 * MS, 11_000 * MS, 10 * MS),
+                new Stream(MAG, 10_110 * MS, 11_000 * MS, 10 * MS));
+        assertEquals(10_200 * MS, (long) times.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveSilence() {
+        new FrameAligner(PERIOD, 64, 8, 0, (timestampNanos, ring, offset) -> { });
+    }
+
+    // Samples of one sensor at a fixed step over [from, to]
+    private static final class Stream {
+        final int sensor;
+        final long to;
+        final long step;
+        long next;
+
+        Stream(int sensor, long from, long to, long step) {
+            this.sensor = sensor;
+            this.next = from;
+            this.to = to;
+            this.step = step;
+        }
+    }
+
+    // Feeds the streams merged in timestamp order, as the sensors would deliver them
+    private void feed(Stream... streams) {
+        while (true) {
+            Stream earliest = null;
+            for (Stream stream : streams) {
+                if (stream.next <= stream.to && (earliest == null || stream.next < earliest.next)) {
+                    earliest = stream;
+                }
+            }
+            if (earliest == null) return;
+            float x = x(earliest.sensor, earliest.next);
+            aligner.add(earliest.sensor, earliest.next, x, -x, earliest.sensor);
+            earliest.next += earliest.step;
+        }
+    }
+
+    // A different slope per sensor, in units per second
+    private static float x(int sensor, long t) {
+        return (float) ((sensor + 1) * t / 1e9);
+    }
+}
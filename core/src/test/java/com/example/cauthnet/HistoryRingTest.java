@@ -0,0 +1,78 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+public class HistoryRingTest {
+
+    @Test
+    public void averageFollowsTheLatestVectors() {
+        HistoryRing ring = new HistoryRing(3, 2, false);
+        assertArrayEquals(new float[]{0, 0}, ring.average(), 0);
+        ring.add(new float[]{1, 10}, 0);
+        ring.add(new float[]{2, 20}, 0);
+        assertArrayEquals(new float[]{1.5f, 15}, ring.average(), 0);
+        ring.add(new float[]{3, 30}, 0);
+        assertTrue(ring.isFull());
+        ring.add(new float[]{9, 90}, 0);
+        assertEquals(3, ring.size());
+        assertArrayEquals(new float[]{14 / 3f, 140 / 3f}, ring.average(), 1e-5f);
+    }
+
+    @Test
+    public void copyRowsIsOldestFirstAfterWrapping() {
+        HistoryRing ring = new HistoryRing(3, 2, true);
+        // Values read from an offset into a larger buffer
+        float[] source = {-1, -1, 1, 2, 3, 4, 5, 6, 7, 8};
+        for (int offset = 2; offset + 2 <= source.length; offset += 2) {
+            ring.add(source, offset);
+        }
+        float[] rows = new float[1 + 3 * 2];
+        ring.copyRows(rows, 1);
+        assertArrayEquals(new float[]{0, 3, 4, 5, 6, 7, 8}, rows, 0);
+    }
+
+    @Test
+    public void compensatedSumDoesNotDrift() {
+        Random random = new Random(53);
+        int capacity = 20;
+        HistoryRing ring = new HistoryRing(capacity, 1, true);
+        float[] recent = new float[capacity];
+        // Large values, so every eviction would leave rounding error in a plain float sum
+        for (int n = 0; n < 1_000_000; n++) {
+            float v = (float) (1e4 + random.nextGaussian() * 1e3);
+            recent[n % capacity] = v;
+            ring.add(new float[]{v}, 0);
+        }
+        double exact = 0;
+        for (float v : recent) {
+            exact += v;
+        }
+        assertEquals(exact / capacity, ring.average()[0], 1e-3);
+    }
+
+    @Test
+    public void averageAtOffsetAndClear() {
+        HistoryRing ring = new HistoryRing(4, 3, false);
+        ring.add(new float[]{3, 6, 9}, 0);
+        float[] out = new float[5];
+        ring.average(out, 2);
+        assertArrayEquals(new float[]{0, 0, 3, 6, 9}, out, 0);
+        ring.clear();
+        assertTrue(ring.isEmpty());
+        assertFalse(ring.isFull());
+        ring.add(new float[]{1, 1, 1}, 0);
+        assertArrayEquals(new float[]{1, 1, 1}, ring.average(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCapacity() {
+        new HistoryRing(0, 144, true);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesHaveBucketsOfTheirOwn() {
+        for (long v = 0; v < 8; v++) {
+            assertEquals(v, LatencyHistogram.bucketOf(v));
+            assertEquals(v, LatencyHistogram.upperBound((int) v));
+        }
+        // From 8 on, four buckets per power of two: 8-9, 10-11, 12-13, 14-15, 16-19, ...
+        assertEquals(8, LatencyHistogram.bucketOf(8));
+        assertEquals(8, LatencyHistogram.bucketOf(9));
+        assertEquals(9, LatencyHistogram.bucketOf(10));
+        assertEquals(9, LatencyHistogram.upperBound(8));
+        assertEquals(11, LatencyHistogram.bucketOf(15));
+        assertEquals(12, LatencyHistogram.bucketOf(16));
+        assertEquals(19, LatencyHistogram.upperBound(12));
+    }
+
+    @Test
+    public void everyValueFitsItsBucketWithin25Percent() {
+        int previous = 0;
+        for (long v = 1; v < 1 << 16; v++) {
+            check(v);
+            int bucket = LatencyHistogram.bucketOf(v);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            previous = bucket;
+        }
+        for (int exponent = 16; exponent < 63; exponent++) {
+            long power = 1L << exponent;
+            check(power - 1);
+            check(power);
+            check(power + (power >> 2));
+            check(power + (power >> 2) - 1);
+        }
+        check(Long.MAX_VALUE);
+        assertTrue(LatencyHistogram.bucketOf(Long.MAX_VALUE) < 256);
+    }
+
+    @Test
+    public void percentilesOfAUniformDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram("uniform");
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000 + 999); // Sub-microsecond parts are dropped
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.maxMicros());
+        assertEquals(500.5, histogram.meanMicros(), 1e-9);
+        // 500 lies in 448-511 and 900 in 896-1023, capped at the largest value seen
+        assertEquals(1, histogram.percentileMicros(0));
+        assertEquals(511, histogram.percentileMicros(50));
+        assertEquals(1000, histogram.percentileMicros(90));
+        assertEquals(1000, histogram.percentileMicros(100));
+        for (int p = 1; p <= 100; p++) {
+            long actual = histogram.percentileMicros(p);
+            assertTrue(p + ": " + actual, actual >= p * 10 && actual <= p * 10 * 1.25);
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileMicros(50));
+        assertEquals(0, histogram.meanMicros(), 0);
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram("clock");
+        histogram.record(-5000);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentileMicros(100));
+    }
+
+    private static void check(long v) {
+        int bucket = LatencyHistogram.bucketOf(v);
+        long upper = LatencyHistogram.upperBound(bucket);
+        assertTrue(v + " above bucket " + bucket, upper >= v);
+        assertTrue(v + " below bucket " + bucket, bucket == 0 || LatencyHistogram.upperBound(bucket - 1) < v);
+        assertTrue(v + " bucket too wide", upper - v <= v / 4);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MlpBackendTest {
+
+    // Set by the Gradle test task to the network bundled with the app
+    static final String WEIGHTS_PROPERTY = "cauthnet.weights";
+
+    private static final int INPUT = EmbeddingBackend.INPUT_SIZE;
+    private static final int OUTPUT = EmbeddingBackend.EMBEDDING_SIZE;
+
+    @Test
+    public void weightsReadBackAsWritten() throws IOException {
+        Random random = new Random(41);
+        int[] sizes = {6, 5, 3};
+        float[][] weights = {gaussian(random, 30), gaussian(random, 15)};
+        float[][] biases = {gaussian(random, 5), gaussian(random, 3)};
+        float[] gamma = gaussian(random, 3);
+        float[] beta = gaussian(random, 3);
+        float[] mean = gaussian(random, 3);
+        float[] variance = {0.5f, 2, 0};
+        float eps = 1e-5f;
+        MlpWeights expected = new MlpWeights(sizes, weights, biases, gamma, beta, mean, variance, eps);
+
+        MlpWeights read = MlpWeights.read(new ByteArrayInputStream(
+                encode(sizes, weights, biases, new float[][] {gamma, beta, mean, variance}, eps)));
+        assertArrayEquals(sizes, read.sizes);
+        assertEquals(2, read.layerCount());
+        for (int l = 0; l < 2; l++) {
+            assertArrayEquals(weights[l], read.weights[l], 0);
+            assertArrayEquals(biases[l], read.biases[l], 0);
+        }
+        assertArrayEquals(expected.normScale, read.normScale, 0);
+        assertArrayEquals(expected.normShift, read.normShift, 0);
+        assertEquals((30 + 5 + 15 + 3) * 4, read.parameterBytes());
+
+        MlpWeights plain = MlpWeights.read(new ByteArrayInputStream(encode(sizes, weights, biases, null, 0)));
+        assertNull(plain.normScale);
+    }
+
+    @Test
+    public void corruptWeightsAreRejected() throws IOException {
+        Random random = new Random(43);
+        int[] sizes = {4, 2};
+        float[][] weights = {gaussian(random, 8)};
+        float[][] biases = {gaussian(random, 2)};
+        byte[] bytes = encode(sizes, weights, biases, null, 0);
+        assertThrows(IOException.class, () -> MlpWeights.read(new ByteArrayInputStream(Arrays.copyOf(bytes, 30))));
+        bytes[0] ^= 1;
+        assertThrows(IOException.class, () -> MlpWeights.read(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void matchesDoublePrecisionReference() throws IOException {
+        Reference reference = new Reference(Files.readAllBytes(weightsFile().toPath()));
+        MlpBackend backend = new MlpBackend(bundledWeights(), 8);
+        Random random = new Random(47);
+        float[] out = new float[OUTPUT];
+        double worst = 0;
+        for (int n = 0; n < 200; n++) {
+            // Standard deviation 4 puts a fair share of the values beyond the clamp
+            float[] features = gaussian(random, INPUT);
+            for (int i = 0; i < INPUT; i++) {
+                features[i] *= 4;
+            }
+            backend.embed(features, 0, out, 0);
+            double[] expected = reference.embed(features);
+            for (int i = 0; i < OUTPUT; i++) {
+                worst = Math.max(worst, Math.abs(expected[i] - out[i]));
+            }
+        }
+        assertTrue("Largest difference " + worst, worst < 5e-7);
+    }
+
+    @Test
+    public void batchMatchesSingleExactly() throws IOException {
+        // Uneven batch sizes exercise the four-row blocks, the leftover rows and the split
+        MlpBackend backend = new MlpBackend(bundledWeights(), 6);
+        Random random = new Random(53);
+        int rows = 15;
+        float[] features = gaussian(random, rows * INPUT);
+        float[] batch = new float[rows * OUTPUT];
+        backend.embedBatch(features, rows, batch);
+        float[] single = new float[OUTPUT];
+        for (int n = 0; n < rows; n++) {
+            backend.embed(features, n * INPUT, single, 0);
+            assertArrayEquals(single, Arrays.copyOfRange(batch, n * OUTPUT, (n + 1) * OUTPUT), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNetworkOfOtherShape() {
+        new MlpBackend(new MlpWeights(new int[] {4, 2}, new float[][] {new float[8]}, new float[][] {new float[2]},
+                null, null, null, null, 0), 1);
+    }
+
+    static MlpWeights bundledWeights() throws IOException {
+        try (InputStream in = new FileInputStream(weightsFile())) {
+            return MlpWeights.read(in);
+        }
+    }
+
+    private static File weightsFile() {
+        String path = System.getProperty(WEIGHTS_PROPERTY);
+        if (path == null) {
+            throw new IllegalStateException(WEIGHTS_PROPERTY + " is not set");
+        }
+        return new File(path);
+    }
+
+    static float[] gaussian(Random random, int count) {
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+
+    // Same layout as tools/export_weights.py; norm holds gamma, beta, mean and variance, or is null
+    private static byte[] encode(int[] sizes, float[][] weights, float[][] biases, float[][] norm, float eps) {
+        ByteBuffer out = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MlpWeights.MAGIC);
+        out.putShort(MlpWeights.VERSION);
+        out.putShort((short) weights.length);
+        for (int l = 0; l < weights.length; l++) {
+            out.putInt(sizes[l]);
+            out.putInt(sizes[l + 1]);
+            for (float v : weights[l]) out.putFloat(v);
+            for (float v : biases[l]) out.putFloat(v);
+        }
+        out.putInt(norm == null ? 0 : norm[0].length);
+        out.putFloat(eps);
+        if (norm != null) {
+            for (float[] tensor : norm) {
+                for (float v : tensor) out.putFloat(v);
+            }
+        }
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /**
+     * The network written out in double precision straight from the exported file, without
+     * folding the batch norm or sharing any code with MlpWeights and MlpBackend.
+     */
+    private static final class Reference {
+        private final int[] inputs;
+        private final int[] outputs;
+        private final double[][] weights;
+        private final double[][] biases;
+        private double[] gamma, beta, mean, variance;
+        private double eps;
+
+        Reference(byte[] file) {
+            ByteBuffer data = ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN);
+            data.position(6);
+            int layers = data.getShort();
+            inputs = new int[layers];
+            outputs = new int[layers];
+            weights = new double[layers][];
+            biases = new double[layers][];
+            for (int l = 0; l < layers; l++) {
+                inputs[l] = data.getInt();
+                outputs[l] = data.getInt();
+                weights[l] = doubles(data, inputs[l] * outputs[l]);
+                biases[l] = doubles(data, outputs[l]);
+            }
+            int normSize = data.getInt();
+            eps = data.getFloat();
+            if (normSize > 0) {
+                gamma = doubles(data, normSize);
+                beta = doubles(data, normSize);
+                mean = doubles(data, normSize);
+                variance = doubles(data, normSize);
+            }
+        }
+
+        double[] embed(float[] features) {
+            double[] x = new double[features.length];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = Math.max(-EmbeddingBackend.FEATURE_CLAMP, Math.min(features[i], EmbeddingBackend.FEATURE_CLAMP));
+            }
+            for (int l = 0; l < weights.length; l++) {
+                double[] y = new double[outputs[l]];
+                for (int o = 0; o < y.length; o++) {
+                    double sum = biases[l][o];
+                    for (int i = 0; i < inputs[l]; i++) {
+                        sum += weights[l][o * inputs[l] + i] * x[i];
+                    }
+                    y[o] = l < weights.length - 1 ? Math.max(0, sum) : sum;
+                }
+                x = y;
+            }
+            if (gamma != null) {
+                for (int i = 0; i < x.length; i++) {
+                    x[i] = (x[i] - mean[i]) / Math.sqrt(variance[i] + eps) * gamma[i] + beta[i];
+                }
+            }
+            double norm = 0;
+            for (double v : x) {
+                norm += v * v;
+            }
+            norm = Math.sqrt(norm);
+            for (int i = 0; i < x.length; i++) {
+                x[i] /= norm;
+            }
+            return x;
+        }
+
+        private static double[] doubles(ByteBuffer data, int count) {
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = data.getFloat();
+            }
+            return values;
+        }
+    }
+}
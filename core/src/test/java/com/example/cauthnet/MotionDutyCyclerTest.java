@@ -0,0 +1,110 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+public class MotionDutyCyclerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final float GRAVITY = 9.81f;
+
+    private final Random random = new Random(59);
+    private final MotionDutyCycler cycler = new MotionDutyCycler(0.005f, 0.02f, 5000 * MS, 1000 * MS);
+    private long now;
+
+    @Test
+    public void goesIdleAfterStayingStill() {
+        int changes = still(4900 * MS, 5 * MS);
+        assertEquals(0, changes);
+        assertEquals(MotionDutyCycler.State.ACTIVE, cycler.getState());
+        // The variance settles within a few time constants, then the idle delay runs
+        changes = still(2000 * MS, 5 * MS);
+        assertEquals(1, changes);
+        assertEquals(MotionDutyCycler.State.IDLE, cycler.getState());
+    }
+
+    @Test
+    public void wakesOnMotionAndCountsIt() {
+        still(10_000 * MS, 5 * MS);
+        assertEquals(MotionDutyCycler.State.IDLE, cycler.getState());
+        // Idle sampling is slow; a handful of samples of handling must be enough
+        int changes = handled(1000 * MS, 200 * MS);
+        assertTrue(changes >= 1);
+        assertEquals(MotionDutyCycler.State.ACTIVE, cycler.getState());
+        assertEquals(1, cycler.getWakeUps());
+    }
+
+    @Test
+    public void staysActiveWhileHandled() {
+        assertEquals(0, handled(60_000 * MS, 5 * MS));
+        assertEquals(MotionDutyCycler.State.ACTIVE, cycler.getState());
+        assertTrue(cycler.getVariance() > 0.02f);
+    }
+
+    @Test
+    public void noiseBetweenThresholdsDoesNotWakeIt() {
+        still(10_000 * MS, 200 * MS);
+        assertEquals(MotionDutyCycler.State.IDLE, cycler.getState());
+        // Variance around 0.01: above the still threshold but below the motion one
+        for (int i = 0; i < 300; i++) {
+            now += 200 * MS;
+            assertFalse(cycler.onAccel(now, 0, 0, GRAVITY + (float) (random.nextGaussian() * 0.1)));
+        }
+        assertEquals(MotionDutyCycler.State.IDLE, cycler.getState());
+    }
+
+    @Test
+    public void tracksTimeInEachState() {
+        still(10_000 * MS, 10 * MS);
+        long total = cycler.getActiveNanos() + cycler.getIdleNanos();
+        assertEquals(now - 10 * MS, total);
+        assertTrue(cycler.getIdleNanos() > 3000 * MS);
+        assertTrue(cycler.getActiveNanos() >= 5000 * MS);
+    }
+
+    @Test
+    public void wakeAndResetForceActive() {
+        still(10_000 * MS, 5 * MS);
+        cycler.wake();
+        assertEquals(MotionDutyCycler.State.ACTIVE, cycler.getState());
+        assertEquals(1, cycler.getWakeUps());
+        // A forced wake restarts the stillness timer
+        assertEquals(0, still(4000 * MS, 5 * MS));
+
+        still(10_000 * MS, 5 * MS);
+        cycler.reset();
+        assertEquals(MotionDutyCycler.State.ACTIVE, cycler.getState());
+        assertEquals(0, cycler.getVariance(), 0);
+        assertEquals(1, cycler.getWakeUps());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMotionThresholdBelowStillThreshold() {
+        new MotionDutyCycler(0.02f, 0.005f, 0, MS);
+    }
+
+    // Device on a desk: gravity plus a little sensor noise
+    private int still(long duration, long step) {
+        return feed(duration, step, 0.01);
+    }
+
+    // Device in a hand: much larger fluctuations of the magnitude
+    private int handled(long duration, long step) {
+        return feed(duration, step, 1.0);
+    }
+
+    private int feed(long duration, long step, double sigma) {
+        int changes = 0;
+        for (long end = now + duration; now < end; ) {
+            now += step;
+            float z = GRAVITY + (float) (random.nextGaussian() * sigma);
+            if (cycler.onAccel(now, 0, 0, z)) changes++;
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+public class QuantizedMlpBackendTest {
+
+    private static final int INPUT = EmbeddingBackend.INPUT_SIZE;
+    private static final int OUTPUT = EmbeddingBackend.EMBEDDING_SIZE;
+
+    @Test
+    public void staysCloseToFloat() throws IOException {
+        MlpWeights weights = MlpBackendTest.bundledWeights();
+        MlpBackend floats = new MlpBackend(weights, 1);
+        QuantizedMlpBackend int8 = new QuantizedMlpBackend(weights, 1);
+        Random random = new Random(61);
+        double total = 0;
+        double worst = 0;
+        int inputs = 2000;
+        for (int n = 0; n < inputs; n++) {
+            float[] features = features(random);
+            double distance = distance(floats.embed(features), int8.embed(features));
+            total += distance;
+            worst = Math.max(worst, distance);
+        }
+        // Out of a possible 2 between unit vectors
+        assertTrue("Mean distance " + total / inputs, total / inputs < 0.025);
+        assertTrue("Largest distance " + worst, worst < 0.06);
+        assertTrue(int8.parameterBytes() * 3 < weights.parameterBytes());
+    }
+
+    @Test
+    public void nearestTemplateMostlyAgreesWithFloat() throws IOException {
+        MlpWeights weights = MlpBackendTest.bundledWeights();
+        MlpBackend floats = new MlpBackend(weights, 1);
+        QuantizedMlpBackend int8 = new QuantizedMlpBackend(weights, 1);
+        Random random = new Random(67);
+        TemplateIndex templates = new TemplateIndex(OUTPUT);
+        float[][] enrolled = new float[50][];
+        for (int t = 0; t < enrolled.length; t++) {
+            enrolled[t] = features(random);
+            templates.add("user" + t, floats.embed(enrolled[t]));
+        }
+        QuantizedTemplateIndex quantized = new QuantizedTemplateIndex(templates);
+
+        // Noisy repeats of enrolled inputs, as a returning user's taps would be
+        int agree = 0;
+        int queries = 500;
+        for (int q = 0; q < queries; q++) {
+            float[] features = enrolled[random.nextInt(enrolled.length)].clone();
+            for (int i = 0; i < INPUT; i++) {
+                features[i] += (float) random.nextGaussian() * 2;
+            }
+            if (templates.nearest(floats.embed(features)).row == quantized.nearest(int8.embed(features)).row) {
+                agree++;
+            }
+        }
+        assertTrue(agree + " of " + queries, agree >= queries * 0.98);
+    }
+
+    @Test
+    public void allZeroRowsGiveTheBias() {
+        // One layer whose even rows are all zero, so their weight scale is 0
+        Random random = new Random(71);
+        float[] w = MlpBackendTest.gaussian(random, INPUT * OUTPUT);
+        for (int o = 0; o < OUTPUT; o += 2) {
+            for (int i = 0; i < INPUT; i++) {
+                w[o * INPUT + i] = 0;
+            }
+        }
+        float[] b = MlpBackendTest.gaussian(random, OUTPUT);
+        MlpWeights weights = new MlpWeights(new int[] {INPUT, OUTPUT}, new float[][] {w}, new float[][] {b},
+                null, null, null, null, 0);
+        MlpBackend floats = new MlpBackend(weights, 1);
+        QuantizedMlpBackend int8 = new QuantizedMlpBackend(weights, 1);
+
+        // An all-zero input has scale 0 as well; both paths then give exactly the bias
+        float[] zero = new float[INPUT];
+        assertArrayEquals(floats.embed(zero), int8.embed(zero), 0);
+
+        float[] features = features(random);
+        float[] expected = floats.embed(features);
+        float[] actual = int8.embed(features);
+        for (int o = 0; o < OUTPUT; o += 2) {
+            // Zero rows contribute only their bias, the same share of both unit vectors
+            assertEquals(expected[o] / expected[1], actual[o] / actual[1], 0.05f);
+        }
+        assertTrue(distance(expected, actual) < 0.05);
+
+        byte[] bytes = new byte[4];
+        bytes[0] = 9;
+        assertEquals(0, QuantizedTemplateIndex.quantize(new float[4], 0, bytes, 0, 4), 0);
+        assertArrayEquals(new byte[4], bytes);
+    }
+
+    private static float[] features(Random random) {
+        float[] features = MlpBackendTest.gaussian(random, INPUT);
+        for (int i = 0; i < INPUT; i++) {
+            features[i] *= 4;
+        }
+        return features;
+    }
+
+    private static double distance(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double d = a[i] - b[i];
+            sum += d * d;
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SampleRingTest {
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(1, new SampleRing(1).capacity());
+        assertEquals(8, new SampleRing(5).capacity());
+        assertEquals(2048, new SampleRing(2048).capacity());
+    }
+
+    @Test
+    public void drainsInOrderAndCounts() {
+        SampleRing ring = new SampleRing(4);
+        List<float[]> seen = new ArrayList<>();
+        SampleRing.Consumer consumer = (sensor, timestampNanos, x, y, z) ->
+                seen.add(new float[]{sensor, timestampNanos, x, y, z});
+        assertEquals(0, ring.drain(consumer));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(ring.offer(i % 3, 100 + i, i, -i, 2 * i));
+        }
+        assertEquals(3, ring.drain(consumer));
+        assertEquals(3, seen.size());
+        for (int i = 0; i < 3; i++) {
+            float[] s = seen.get(i);
+            assertEquals(i % 3, s[0], 0);
+            assertEquals(100 + i, s[1], 0);
+            assertEquals(i, s[2], 0);
+            assertEquals(-i, s[3], 0);
+            assertEquals(2 * i, s[4], 0);
+        }
+        assertEquals(3, ring.published());
+        assertEquals(3, ring.maxBacklog());
+    }
+
+    @Test
+    public void fullRingDropsNewSamples() {
+        SampleRing ring = new SampleRing(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(0, i, i, 0, 0));
+        }
+        assertFalse(ring.offer(0, 4, 4, 0, 0));
+        assertFalse(ring.offer(0, 5, 5, 0, 0));
+        assertEquals(2, ring.overruns());
+        assertEquals(4, ring.published());
+
+        // The four accepted samples are intact, and there is room again once they are read
+        float[] first = new float[1];
+        assertEquals(4, ring.drain((sensor, timestampNanos, x, y, z) -> {
+            if (timestampNanos == 0) first[0] = x;
+        }));
+        assertEquals(0, first[0], 0);
+        assertTrue(ring.offer(0, 6, 6, 0, 0));
+    }
+
+    @Test
+    public void clearDiscardsPublishedSamples() {
+        SampleRing ring = new SampleRing(8);
+        ring.offer(1, 1, 1, 1, 1);
+        ring.offer(1, 2, 2, 2, 2);
+        ring.clear();
+        assertEquals(0, ring.drain((sensor, timestampNanos, x, y, z) -> { }));
+        ring.offer(1, 3, 3, 3, 3);
+        assertEquals(1, ring.drain((sensor, timestampNanos, x, y, z) -> { }));
+    }
+
+    @Test
+    public void producerAndConsumerThreadsSeeEverySampleInOrder() throws InterruptedException {
+        SampleRing ring = new SampleRing(64);
+        int total = 200_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; ) {
+                // Every field derives from i, so a torn slot would show
+                if (ring.offer(i % 3, i, i, i + 1, i + 2)) {
+                    i++;
+                } else {
+                    Thread.yield();
+                }
+            }
+        }, "producer");
+        AtomicReference<String> error = new AtomicReference<>();
+        long[] expected = {0};
+        SampleRing.Consumer consumer = (sensor, timestampNanos, x, y, z) -> {
+            long i = expected[0]++;
+            if (timestampNanos != i || sensor != i % 3 || x != (float) i || y != (float) (i + 1)
+                    || z != (float) (i + 2)) {
+                error.compareAndSet(null, "sample " + i + " read as " + timestampNanos);
+            }
+        };
+        producer.start();
+        while (expected[0] < total) {
+            if (ring.drain(consumer) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+        assertEquals(null, error.get());
+        assertEquals(total, ring.published());
+        assertTrue(ring.maxBacklog() <= ring.capacity());
+    }
+}
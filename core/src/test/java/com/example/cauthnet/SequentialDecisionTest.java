@@ -0,0 +1,137 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+public class SequentialDecisionTest {
+
+    private static final float GENUINE_MEAN = 0.4f;
+    private static final float GENUINE_SIGMA = 0.1f;
+    private static final float IMPOSTOR_MEAN = 0.9f;
+    private static final float IMPOSTOR_SIGMA = 0.15f;
+
+    private static SequentialDecision decision(int maxWindows) {
+        return new SequentialDecision(GENUINE_MEAN, GENUINE_SIGMA, IMPOSTOR_MEAN, IMPOSTOR_SIGMA,
+                0.01f, 0.05f, maxWindows);
+    }
+
+    @Test
+    public void evidenceFavoursTheCloserHypothesis() {
+        SequentialDecision decision = decision(10);
+        assertTrue(decision.windowLogLikelihoodRatio(GENUINE_MEAN) > 0);
+        assertTrue(decision.windowLogLikelihoodRatio(IMPOSTOR_MEAN) < 0);
+        // Both densities are equal here, so the window carries no evidence
+        float even = crossing();
+        assertEquals(0, decision.windowLogLikelihoodRatio(even), 1e-4);
+    }
+
+    @Test
+    public void clearCasesDecideQuickly() {
+        SequentialDecision decision = decision(10);
+        assertEquals(SequentialDecision.Outcome.ACCEPT, decision.add(GENUINE_MEAN));
+        assertEquals(1, decision.getWindows());
+
+        decision.reset();
+        assertEquals(SequentialDecision.Outcome.REJECT, decision.add(IMPOSTOR_MEAN));
+        assertEquals(SequentialDecision.Outcome.REJECT, decision.getOutcome());
+    }
+
+    @Test
+    public void borderlineCasesTakeMoreWindows() {
+        SequentialDecision decision = decision(50);
+        // Slightly on the genuine side of the crossing, so each window adds a little evidence
+        float borderline = crossing() - 0.03f;
+        double step = decision.windowLogLikelihoodRatio(borderline);
+        assertTrue(step > 0);
+        int windows = 0;
+        while (decision.add(borderline) == SequentialDecision.Outcome.PENDING) windows++;
+        assertEquals(SequentialDecision.Outcome.ACCEPT, decision.getOutcome());
+        assertTrue(windows > 1);
+        assertEquals(windows + 1, decision.getWindows());
+        assertEquals(step * decision.getWindows(), decision.getLogLikelihoodRatio(), 1e-6);
+        assertTrue(decision.getLogLikelihoodRatio() >= Math.log(0.95 / 0.01));
+    }
+
+    @Test
+    public void undecidedSequenceIsRejectedAtMaxWindows() {
+        SequentialDecision decision = decision(3);
+        float even = crossing();
+        assertEquals(SequentialDecision.Outcome.PENDING, decision.add(even));
+        assertEquals(SequentialDecision.Outcome.PENDING, decision.add(even));
+        assertEquals(SequentialDecision.Outcome.REJECT, decision.add(even));
+        assertEquals(3, decision.getMaxWindows());
+    }
+
+    @Test
+    public void errorRatesHoldOnSimulatedDistances() {
+        Random random = new Random(31);
+        SequentialDecision decision = decision(20);
+        int falseAccepts = 0;
+        int falseRejects = 0;
+        int trials = 2000;
+        for (int t = 0; t < trials; t++) {
+            if (decide(decision, random, GENUINE_MEAN, GENUINE_SIGMA) != SequentialDecision.Outcome.ACCEPT) {
+                falseRejects++;
+            }
+            if (decide(decision, random, IMPOSTOR_MEAN, IMPOSTOR_SIGMA) == SequentialDecision.Outcome.ACCEPT) {
+                falseAccepts++;
+            }
+        }
+        assertTrue(falseAccepts <= trials * 0.01);
+        assertTrue(falseRejects <= trials * 0.05);
+    }
+
+    @Test
+    public void resetStartsANewSequence() {
+        SequentialDecision decision = decision(10);
+        decision.add(GENUINE_MEAN);
+        decision.reset();
+        assertEquals(SequentialDecision.Outcome.PENDING, decision.getOutcome());
+        assertEquals(0, decision.getWindows());
+        assertEquals(0, decision.getLogLikelihoodRatio(), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsWindowAfterDecision() {
+        SequentialDecision decision = decision(10);
+        decision.add(GENUINE_MEAN);
+        decision.add(GENUINE_MEAN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGenuineMeanAboveImpostorMean() {
+        new SequentialDecision(IMPOSTOR_MEAN, GENUINE_SIGMA, GENUINE_MEAN, IMPOSTOR_SIGMA, 0.01f, 0.05f, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsErrorRatesSummingToOne() {
+        new SequentialDecision(GENUINE_MEAN, GENUINE_SIGMA, IMPOSTOR_MEAN, IMPOSTOR_SIGMA, 0.5f, 0.5f, 10);
+    }
+
+    private static SequentialDecision.Outcome decide(SequentialDecision decision, Random random,
+                                                     float mean, float sigma) {
+        decision.reset();
+        SequentialDecision.Outcome outcome;
+        do {
+            outcome = decision.add(mean + (float) (random.nextGaussian() * sigma));
+        } while (outcome == SequentialDecision.Outcome.PENDING);
+        return outcome;
+    }
+
+    // Distance between the means where the two densities are equal, found by bisection
+    private static float crossing() {
+        SequentialDecision decision = decision(1);
+        float low = GENUINE_MEAN;
+        float high = IMPOSTOR_MEAN;
+        for (int i = 0; i < 60; i++) {
+            float mid = (low + high) / 2;
+            if (decision.windowLogLikelihoodRatio(mid) > 0) low = mid;
+            else high = mid;
+        }
+        return (low + high) / 2;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.cauthnet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SessionRecorderTest {
+
+    private static final String LABEL = "session";
+    private static final int CHUNK_EVENTS = 10;
+    // At most four chunks, so the recorder never runs out of buffers and drops events
+    private static final int EVENTS = 37;
+    private static final long START_NANOS = 5_000_000_000L;
+    private static final long STEP_NANOS = 1_000_000L;
+    private static final int HEADER_SIZE = 22 + LABEL.length();
+    private static final int CHUNK_SIZE = SessionRecorder.CHUNK_HEADER_SIZE + CHUNK_EVENTS * SessionRecorder.RECORD_SIZE;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("session", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void indexedFileReadsBackEveryEvent() throws IOException {
+        List<String> recorded = record();
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(LABEL, reader.getLabel());
+            assertTrue(reader.getCreatedMillis() > 0);
+            assertEquals(4, reader.chunkCount());
+            assertEquals(EVENTS, reader.eventCount());
+            assertEquals(recorded, events(reader, 0, EVENTS));
+            assertEquals(-1, reader.verify());
+
+            // Random access agrees with the visitor
+            assertEquals(SessionRecorder.TYPE_TAP, reader.type(7));
+            assertEquals(SessionRecorder.TAP_AUTHENTICATE, (int) reader.value(7, 0));
+            assertEquals(timestamp(23), reader.timestampNanos(23));
+            assertEquals(23 % 3, reader.type(23));
+            assertEquals(23 * 0.5f, reader.value(23, 1), 0);
+            assertEquals(timestamp(20), reader.chunkMinTimestamp(2));
+            assertEquals(timestamp(29), reader.chunkMaxTimestamp(2));
+        }
+    }
+
+    @Test
+    public void fileCutMidChunkKeepsTheCompleteChunks() throws IOException {
+        List<String> recorded = record();
+        // Two whole chunks and half of the third; the index is gone with the rest
+        truncate(HEADER_SIZE + 2 * CHUNK_SIZE + SessionRecorder.CHUNK_HEADER_SIZE + 5 * SessionRecorder.RECORD_SIZE);
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(2, reader.chunkCount());
+            assertEquals(20, reader.eventCount());
+            assertEquals(recorded.subList(0, 20), events(reader, 0, 20));
+            assertEquals(-1, reader.verify());
+        }
+    }
+
+    @Test
+    public void indexPointingOutsideTheFileFallsBackToScanning() throws IOException {
+        List<String> recorded = record();
+        int trailer = (int) file.length() - SessionRecorder.TRAILER_SIZE;
+        int lastEntry = trailer - SessionRecorder.INDEX_ENTRY_SIZE;
+        writeInt(lastEntry + 24, 1000);
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(4, reader.chunkCount());
+            assertEquals(EVENTS, reader.eventCount());
+            assertEquals(recorded, events(reader, 0, EVENTS));
+        }
+        // An empty chunk would break the event-to-chunk search
+        writeInt(lastEntry + 24, 0);
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(4, reader.chunkCount());
+            assertEquals(EVENTS, reader.eventCount());
+        }
+    }
+
+    @Test
+    public void scanStopsAtAnEmptyChunk() throws IOException {
+        List<String> recorded = record();
+        truncate(HEADER_SIZE + 3 * CHUNK_SIZE);
+        writeInt(HEADER_SIZE + CHUNK_SIZE + 4, 0);
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(1, reader.chunkCount());
+            assertEquals(recorded.subList(0, 10), events(reader, 0, 10));
+        }
+    }
+
+    @Test
+    public void verifyFindsTheCorruptChunk() throws IOException {
+        record();
+        int record = HEADER_SIZE + 2 * CHUNK_SIZE + SessionRecorder.CHUNK_HEADER_SIZE + 3 * SessionRecorder.RECORD_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(record + 6);
+            int b = raf.read();
+            raf.seek(record + 6);
+            raf.write(b ^ 0x10);
+        }
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(2, reader.verify());
+        }
+    }
+
+    @Test
+    public void seekFindsTheFirstChunkReachingTheTimestamp() throws IOException {
+        record();
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(0, reader.seek(0));
+            assertEquals(0, reader.seek(timestamp(9)));
+            assertEquals(10, reader.seek(timestamp(9) + 1));
+            assertEquals(10, reader.seek(timestamp(15)));
+            assertEquals(30, reader.seek(timestamp(30)));
+            assertEquals(30, reader.seek(timestamp(EVENTS - 1)));
+            assertEquals(EVENTS, reader.seek(timestamp(EVENTS)));
+
+            // Reading from a seek position crosses into the following chunks
+            List<String> tail = events(reader, reader.seek(timestamp(15)), EVENTS);
+            assertEquals(EVENTS - 10, tail.size());
+            assertTrue(tail.get(0).contains("@" + timestamp(10)));
+        }
+    }
+
+    // Samples of the three sensors in turn, with a tap every seventh event; returns them as text
+    private List<String> record() throws IOException {
+        List<String> events = new ArrayList<>();
+        try (SessionRecorder recorder = new SessionRecorder(file, LABEL, CHUNK_EVENTS)) {
+            for (int i = 0; i < EVENTS; i++) {
+                if (i % 7 == 0) {
+                    recorder.recordTap(timestamp(i), SessionRecorder.TAP_AUTHENTICATE);
+                    events.add(tap(timestamp(i), SessionRecorder.TAP_AUTHENTICATE));
+                } else {
+                    recorder.record(i % 3, timestamp(i), i, i * 0.5f, -i);
+                    events.add(sample(i % 3, timestamp(i), i, i * 0.5f, -i));
+                }
+            }
+            assertEquals(0, recorder.getEventsDropped());
+        }
+        return events;
+    }
+
+    private static List<String> events(SessionReader reader, int from, int to) {
+        List<String> events = new ArrayList<>();
+        reader.read(from, to, new SessionReader.Visitor() {
+            @Override
+            public void onSample(int sensor, long timestampNanos, float x, float y, float z) {
+                events.add(sample(sensor, timestampNanos, x, y, z));
+            }
+
+            @Override
+            public void onTap(long timestampNanos, int kind) {
+                events.add(tap(timestampNanos, kind));
+            }
+        });
+        return events;
+    }
+
+    private static String sample(int sensor, long timestampNanos, float x, float y, float z) {
+        return sensor + "@" + timestampNanos + ": " + x + ", " + y + ", " + z;
+    }
+
+    private static String tap(long timestampNanos, int kind) {
+        return "tap@" + timestampNanos + ": " + kind;
+    }
+
+    // Whole microseconds, so every timestamp survives the record format exactly
+    private static long timestamp(int event) {
+        return START_NANOS + event * STEP_NANOS;
+    }
+
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    private void writeInt(long position, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            raf.writeInt(Integer.reverseBytes(value)); // The format is little-endian
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+public class StreamingFeatureExtractorTest {
+
+    private static final int WINDOW = 10;
+    private static final int SENSORS = SensorWindowStore.SENSOR_COUNT;
+    private static final int CHANNELS = WindowStatistics.CHANNELS;
+
+    @Test
+    public void tapSplitsBeforeAndAfterWindows() {
+        Random random = new Random(7);
+        StreamingFeatureExtractor extractor = new StreamingFeatureExtractor(WINDOW);
+        // 25 frames before the tap, of which the last WINDOW count, and 4 after it
+        float[][] frames = randomFrames(random, 29);
+        for (int n = 0; n < 25; n++) {
+            extractor.addFrame(frames[n], 0);
+        }
+        assertFalse(extractor.isTapped());
+        extractor.markTap();
+        assertTrue(extractor.isTapped());
+        for (int n = 25; n < 29; n++) {
+            extractor.addFrame(frames[n], 0);
+        }
+        assertFalse(extractor.isFull());
+
+        float[] features = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        extractor.snapshot(features, 0);
+        assertFeatures(expected(frames, 15, 25, 25, 29), features);
+    }
+
+    @Test
+    public void untappedExtractorSlidesBeforeWindowOnly() {
+        // The layout passive scoring uses: the latest frames before, an empty after window
+        StreamingFeatureExtractor extractor = new StreamingFeatureExtractor(WINDOW);
+        float[][] frames = randomFrames(new Random(5), 25);
+        for (int n = 0; n < frames.length; n++) {
+            extractor.addFrame(frames[n], 0);
+            assertEquals(n + 1 >= WINDOW, extractor.isBeforeFull());
+        }
+        assertFalse(extractor.isFull());
+        float[] features = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        extractor.snapshot(features, 0);
+        assertFeatures(expected(frames, 15, 25, 25, 25), features);
+    }
+
+    @Test
+    public void continuousModeSlidesAcrossBothWindows() {
+        Random random = new Random(11);
+        StreamingFeatureExtractor extractor = new StreamingFeatureExtractor(WINDOW, true);
+        float[][] frames = randomFrames(random, 57);
+        float[] features = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        for (int n = 0; n < frames.length; n++) {
+            extractor.addFrame(frames[n], 0);
+            int end = n + 1;
+            int split = Math.max(0, end - WINDOW);
+            extractor.snapshot(features, 0);
+            assertFeatures(expected(frames, Math.max(0, split - WINDOW), split, split, end), features);
+        }
+        assertTrue(extractor.isFull());
+    }
+
+    @Test
+    public void afterWindowSlidesToo() {
+        StreamingFeatureExtractor extractor = new StreamingFeatureExtractor(WINDOW);
+        float[][] frames = randomFrames(new Random(11), 37);
+        for (int n = 0; n < 12; n++) {
+            extractor.addFrame(frames[n], 0);
+        }
+        extractor.markTap();
+        for (int n = 12; n < 37; n++) {
+            extractor.addFrame(frames[n], 0);
+        }
+
+        float[] features = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        extractor.snapshot(features, 0);
+        assertFeatures(expected(frames, 2, 12, 27, 37), features);
+    }
+
+    @Test
+    public void resetEmptiesEveryWindow() {
+        StreamingFeatureExtractor extractor = new StreamingFeatureExtractor(WINDOW);
+        for (float[] frame : randomFrames(new Random(13), 12)) {
+            extractor.addFrame(frame, 0);
+        }
+        extractor.markTap();
+        extractor.reset();
+        assertFalse(extractor.isTapped());
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+            assertTrue(extractor.before(sensor).isEmpty());
+            assertTrue(extractor.after(sensor).isEmpty());
+        }
+    }
+
+    @Test
+    public void magnitudeIsComputedForRawSamples() {
+        StreamingFeatureExtractor extractor = new StreamingFeatureExtractor(WINDOW);
+        extractor.add(SensorWindowStore.SENSOR_GYRO, 3, 4, 0);
+        assertEquals(5, extractor.before(SensorWindowStore.SENSOR_GYRO).mean(3), 1e-6f);
+        assertTrue(extractor.before(SensorWindowStore.SENSOR_ACCEL).isEmpty());
+    }
+
+    private static float[][] randomFrames(Random random, int count) {
+        float[][] frames = new float[count][SENSORS * CHANNELS];
+        for (float[] frame : frames) {
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = (float) (random.nextGaussian() * 2);
+            }
+        }
+        return frames;
+    }
+
+    // The 144-value layout computed from scratch for frames [b0, b1) before and [a0, a1) after
+    private static float[] expected(float[][] frames, int b0, int b1, int a0, int a1) {
+        float[] out = new float[StreamingFeatureExtractor.FEATURE_COUNT];
+        int index = 0;
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+            float[] before = new float[CHANNELS * 4];
+            float[] after = new float[CHANNELS * 4];
+            batch(frames, b0, b1, sensor, before);
+            batch(frames, a0, a1, sensor, after);
+            System.arraycopy(before, 0, out, index, before.length);
+            System.arraycopy(after, 0, out, index + before.length, after.length);
+            for (int i = 0; i < before.length; i++) {
+                out[index + 2 * before.length + i] = after[i] - before[i];
+            }
+            index += StreamingFeatureExtractor.FEATURES_PER_SENSOR;
+        }
+        return out;
+    }
+
+    // Mean, population std, min and max per channel; the extractor's constants for an empty window
+    private static void batch(float[][] frames, int from, int to, int sensor, float[] out) {
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            int column = sensor * CHANNELS + ch;
+            if (from == to) {
+                out[ch * 4 + 2] = Float.MAX_VALUE;
+                continue;
+            }
+            double sum = 0;
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int n = from; n < to; n++) {
+                sum += frames[n][column];
+                min = Math.min(min, frames[n][column]);
+                max = Math.max(max, frames[n][column]);
+            }
+            double mean = sum / (to - from);
+            double sq = 0;
+            for (int n = from; n < to; n++) {
+                sq += (frames[n][column] - mean) * (frames[n][column] - mean);
+            }
+            out[ch * 4] = (float) mean;
+            out[ch * 4 + 1] = (float) Math.sqrt(sq / (to - from));
+            out[ch * 4 + 2] = min;
+            out[ch * 4 + 3] = max;
+        }
+    }
+
+    private static void assertFeatures(float[] expected, float[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("feature " + i, expected[i], actual[i], 1e-4f);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TemplateAdapterTest {
+
+    private static final int DIMENSION = 4;
+    private static final long SECOND = 1_000_000_000L;
+
+    private final TemplateAdapter adapter = new TemplateAdapter(0.5f, 0.2f, 0.25f, 60 * SECOND);
+
+    @Test
+    public void movesTemplateTowardEmbeddingAndKeepsUnitLength() {
+        TemplateIndex index = twoUsers();
+        float[] embedding = normalized(1, 0.3f, 0, 0);
+        assertEquals(TemplateAdapter.Result.UPDATED, adapter.adapt(index, match(index, 0), embedding, 0));
+
+        float[] template = row(index, 0);
+        float[] expected = normalized(1 + 0.25f * (embedding[0] - 1), 0.25f * embedding[1], 0, 0);
+        assertArrayEquals(expected, template, 1e-6f);
+        assertEquals(1, norm(template), 1e-6f);
+        // Other rows are untouched
+        assertArrayEquals(new float[] {0, 0, 1, 0}, row(index, 1), 0);
+        assertEquals(1, adapter.getCount(TemplateAdapter.Result.UPDATED));
+    }
+
+    @Test
+    public void updatesOfOneUserAreRateLimited() {
+        TemplateIndex index = twoUsers();
+        index.add("alice", new float[] {0, 1, 0, 0});
+        float[] embedding = normalized(1, 0.1f, 0, 0);
+        assertEquals(TemplateAdapter.Result.UPDATED, adapter.adapt(index, match(index, 0), embedding, 0));
+        // Even another of the user's templates waits for the interval
+        assertEquals(TemplateAdapter.Result.RATE_LIMITED,
+                adapter.adapt(index, match(index, 2), normalized(0.1f, 1, 0, 0), 59 * SECOND));
+        // Other users are limited separately
+        assertEquals(TemplateAdapter.Result.UPDATED,
+                adapter.adapt(index, match(index, 1), normalized(0, 0, 1, 0.1f), 59 * SECOND));
+        assertEquals(TemplateAdapter.Result.UPDATED, adapter.adapt(index, match(index, 0), embedding, 60 * SECOND));
+
+        adapter.adapt(index, match(index, 0), embedding, 61 * SECOND);
+        adapter.reset();
+        assertEquals(TemplateAdapter.Result.UPDATED, adapter.adapt(index, match(index, 0), embedding, 62 * SECOND));
+        assertEquals(2, adapter.getCount(TemplateAdapter.Result.RATE_LIMITED));
+    }
+
+    @Test
+    public void distantEmbeddingIsNotConfident() {
+        TemplateIndex index = twoUsers();
+        float[] before = row(index, 0);
+        assertEquals(TemplateAdapter.Result.NOT_CONFIDENT,
+                adapter.adapt(index, match(index, 0), normalized(1, 1, 0, 0), 0));
+        assertArrayEquals(before, row(index, 0), 0);
+        assertEquals(1, adapter.getCount(TemplateAdapter.Result.NOT_CONFIDENT));
+    }
+
+    @Test
+    public void embeddingNearAnotherUserIsAmbiguous() {
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        index.add("alice", new float[] {1, 0, 0, 0});
+        index.add("bob", normalized(1, 0.4f, 0, 0));
+        float[] before = row(index, 0);
+        // 0.1 from alice's template but only about 0.3 from bob's, inside the 0.2 margin
+        float[] embedding = normalized(1, 0.1f, 0, 0);
+        assertEquals(TemplateAdapter.Result.AMBIGUOUS, adapter.adapt(index, match(index, 0), embedding, 0));
+        assertArrayEquals(before, row(index, 0), 0);
+
+        // The user's own other templates do not count against the margin
+        index.removeUser("bob");
+        index.add("alice", normalized(1, 0.4f, 0, 0));
+        assertEquals(TemplateAdapter.Result.UPDATED, adapter.adapt(index, match(index, 0), embedding, 0));
+    }
+
+    @Test
+    public void staleMatchIsNotConfident() {
+        TemplateIndex index = twoUsers();
+        TemplateIndex.Match match = match(index, 1);
+        index.removeUser("alice"); // bob's row moves up
+        assertEquals(TemplateAdapter.Result.NOT_CONFIDENT,
+                adapter.adapt(index, match, new float[] {0, 0, 1, 0}, 0));
+        assertEquals(TemplateAdapter.Result.NOT_CONFIDENT,
+                adapter.adapt(index, new TemplateIndex.Match("alice", 0, 0), new float[] {0, 0, 1, 0}, 0));
+        assertArrayEquals(new float[] {0, 0, 1, 0}, row(index, 0), 0);
+    }
+
+    @Test
+    public void matchFromQuantizedCopyIsRecheckedOnFloats() {
+        TemplateIndex index = twoUsers();
+        float[] embedding = normalized(1, 0.2f, 0, 0);
+        TemplateIndex.Match match = new QuantizedTemplateIndex(index).nearestOf(embedding, "alice");
+        assertEquals(TemplateAdapter.Result.UPDATED, adapter.adapt(index, match, embedding, 0));
+        assertTrue(row(index, 0)[1] > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRateAboveOne() {
+        new TemplateAdapter(0.5f, 0.2f, 1.5f, 0);
+    }
+
+    private static TemplateIndex twoUsers() {
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        index.add("alice", new float[] {1, 0, 0, 0});
+        index.add("bob", new float[] {0, 0, 1, 0});
+        return index;
+    }
+
+    private static TemplateIndex.Match match(TemplateIndex index, int row) {
+        return new TemplateIndex.Match(index.userOf(row), row, 0);
+    }
+
+    private static float[] row(TemplateIndex index, int row) {
+        float[] out = new float[DIMENSION];
+        index.copyTemplate(row, out);
+        return out;
+    }
+
+    private static float[] normalized(float... values) {
+        float scale = 1 / norm(values);
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= scale;
+        }
+        return values;
+    }
+
+    private static float norm(float[] values) {
+        double sum = 0;
+        for (float v : values) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
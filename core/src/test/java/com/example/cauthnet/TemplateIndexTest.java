@@ -0,0 +1,195 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public class TemplateIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random random = new Random(17);
+        TemplateIndex index = new TemplateIndex(DIMENSION, 2);  // Also exercises growth
+        float[][] rows = new float[200][];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = gaussian(random);
+            index.add("user" + r % 7, rows[r]);
+        }
+        int k = 5;
+        int[] outRows = new int[k];
+        float[] outDistances = new float[k];
+        for (int q = 0; q < 50; q++) {
+            float[] query = gaussian(random);
+            float[] distances = new float[rows.length];
+            for (int r = 0; r < rows.length; r++) {
+                distances[r] = distance(query, rows[r]);
+            }
+            float[] sorted = distances.clone();
+            Arrays.sort(sorted);
+
+            assertEquals(k, index.nearest(query, k, outRows, outDistances));
+            for (int i = 0; i < k; i++) {
+                assertEquals(sorted[i], outDistances[i], 1e-4f);
+                assertEquals(distances[outRows[i]], outDistances[i], 1e-4f);
+            }
+            TemplateIndex.Match match = index.nearest(query);
+            assertEquals(outRows[0], match.row);
+            assertEquals("user" + match.row % 7, match.user);
+        }
+    }
+
+    @Test
+    public void nearestReturnsFewerWhenIndexIsSmall() {
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        assertNull(index.nearest(new float[DIMENSION]));
+        index.add("alice", unit(0));
+        index.add("bob", unit(1));
+        int[] rows = new int[4];
+        float[] distances = new float[4];
+        assertEquals(2, index.nearest(unit(0), 4, rows, distances));
+        assertEquals(0, rows[0]);
+        assertEquals(0, distances[0], 0);
+        assertEquals((float) Math.sqrt(2), distances[1], 1e-6f);
+    }
+
+    @Test
+    public void nearestOfScansOnlyThatUsersRows() {
+        Random random = new Random(23);
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        float[][] rows = new float[120][];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = gaussian(random);
+            index.add("user" + r % 4, rows[r]);
+        }
+        QuantizedTemplateIndex quantized = new QuantizedTemplateIndex(index);
+        for (int q = 0; q < 20; q++) {
+            float[] query = gaussian(random);
+            int best = -1;
+            for (int r = 1; r < rows.length; r += 4) {
+                if (best < 0 || distance(query, rows[r]) < distance(query, rows[best])) best = r;
+            }
+            TemplateIndex.Match match = index.nearestOf(query, "user1");
+            assertEquals("user1", match.user);
+            assertEquals(best, match.row);
+            assertEquals(distance(query, rows[best]), match.distance, 1e-4f);
+
+            TemplateIndex.Match approximate = quantized.nearestOf(query, "user1");
+            assertEquals("user1", approximate.user);
+            assertEquals(distance(query, rows[approximate.row]), approximate.distance, 0.1f);
+        }
+        assertNull(index.nearestOf(gaussian(random), "mallory"));
+        assertNull(quantized.nearestOf(gaussian(random), "mallory"));
+        index.removeUser("user2");
+        assertNull(index.nearestOf(gaussian(random), "user2"));
+    }
+
+    @Test
+    public void closestUserUnderRespectsThreshold() {
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        index.add("alice", unit(0));
+        index.add("bob", unit(1));
+        float[] query = unit(0);
+        query[1] = 0.5f;
+        TemplateIndex.Match match = index.closestUserUnder(query, 0.6f);
+        assertEquals("alice", match.user);
+        assertEquals(0.5f, match.distance, 1e-6f);
+        assertNull(index.closestUserUnder(query, 0.5f));
+    }
+
+    @Test
+    public void trimUserDropsOldestOfThatUserOnly() {
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        for (int i = 0; i < 6; i++) {
+            index.add("alice", unit(i));
+            index.add("bob", unit(i + 10));
+        }
+        index.trimUser("alice", 2);
+        assertEquals(2, index.templateCount("alice"));
+        assertEquals(6, index.templateCount("bob"));
+        assertEquals(8, index.size());
+        // Alice keeps her two newest templates and every row stays in insertion order
+        int[] axes = new int[index.size()];
+        for (int r = 0; r < index.size(); r++) {
+            axes[r] = nonZero(index, r);
+        }
+        assertArrayEquals(new int[]{10, 11, 12, 13, 4, 14, 5, 15}, axes);
+
+        index.removeUser("bob");
+        assertEquals(0, index.templateCount("bob"));
+        assertEquals(2, index.size());
+        assertEquals(0, index.templateCount("carol"));
+        assertEquals(Collections.singletonList("alice"), index.users());
+    }
+
+    @Test
+    public void removedUserIsForgottenAndLaterOnesRenumbered() throws IOException {
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        index.add("alice", unit(0));
+        index.add("bob", unit(1));
+        index.add("carol", unit(2));
+        index.add("bob", unit(3));
+        index.add("carol", unit(4));
+
+        index.removeUser("bob");
+        assertEquals(Arrays.asList("alice", "carol"), index.users());
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList("alice", "carol", "carol"),
+                Arrays.asList(index.userOf(0), index.userOf(1), index.userOf(2)));
+        assertEquals(1, index.ownerOf(2));
+        assertEquals(2, index.templateCount("carol"));
+
+        // The freed name can enroll again, as a new last user
+        index.add("bob", unit(5));
+        assertEquals(Arrays.asList("alice", "carol", "bob"), index.users());
+        assertEquals("bob", index.nearest(unit(5)).user);
+
+        // What is saved carries no orphaned names
+        index.removeUser("alice");
+        assertEquals(Arrays.asList("carol", "bob"), TemplateStore.decode(TemplateStore.encode(index), DIMENSION).users());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTemplateOfWrongDimension() {
+        new TemplateIndex(DIMENSION).add("alice", new float[DIMENSION - 1]);
+    }
+
+    private static int nonZero(TemplateIndex index, int row) {
+        float[] template = new float[DIMENSION];
+        index.copyTemplate(row, template);
+        for (int i = 0; i < DIMENSION; i++) {
+            if (template[i] != 0) return i;
+        }
+        return -1;
+    }
+
+    private static float[] unit(int axis) {
+        float[] v = new float[DIMENSION];
+        v[axis] = 1;
+        return v;
+    }
+
+    private static float[] gaussian(Random random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    private static float distance(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += (a[i] - b[i]) * (a[i] - b[i]);
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.cauthnet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+public class TemplateStoreTest {
+
+    private static final int DIMENSION = 8;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("templates", ".bin");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void missingFileLoadsEmpty() throws IOException {
+        TemplateIndex index = new TemplateStore(file, DIMENSION).load();
+        assertTrue(index.isEmpty());
+        assertEquals(DIMENSION, index.dimension());
+    }
+
+    @Test
+    public void savedTemplatesReadBackExactly() throws IOException {
+        TemplateIndex index = randomIndex(new Random(1), 7);
+        new TemplateStore(file, DIMENSION).save(index);
+
+        TemplateIndex read = new TemplateStore(file, DIMENSION).load();
+        assertEquals(index.users(), read.users());
+        assertEquals(index.size(), read.size());
+        for (int r = 0; r < index.size(); r++) {
+            assertEquals(index.userOf(r), read.userOf(r));
+            assertArrayEquals(row(index, r), row(read, r), 0);
+        }
+    }
+
+    @Test
+    public void loadIsCachedUntilInvalidated() throws IOException {
+        TemplateStore store = new TemplateStore(file, DIMENSION);
+        store.save(randomIndex(new Random(2), 3));
+        TemplateIndex first = store.load();
+        assertSame(first, store.load());
+        store.invalidate();
+        assertNotSame(first, store.load());
+    }
+
+    @Test
+    public void quantizedStoreCachesWhatItWrote() throws IOException {
+        TemplateIndex index = randomIndex(new Random(3), 5);
+        TemplateStore store = new TemplateStore(file, DIMENSION, true);
+        store.save(index);
+        TemplateIndex cached = store.load();
+        TemplateIndex read = new TemplateStore(file, DIMENSION, true).load();
+        for (int r = 0; r < index.size(); r++) {
+            assertArrayEquals(row(cached, r), row(read, r), 0);
+            // One int8 step of a row whose largest magnitude is below 4
+            assertArrayEquals(row(index, r), row(read, r), 4f / 127);
+        }
+        assertEquals(5, store.loadQuantized().size());
+    }
+
+    @Test
+    public void saveAsyncCachesAtOnceAndWritesTheNewest() throws IOException {
+        TemplateStore store = new TemplateStore(file, DIMENSION);
+        TemplateIndex index = randomIndex(new Random(4), 6);
+        float[] template = new float[DIMENSION];
+        for (int i = 0; i < 50; i++) {
+            template[i % DIMENSION] = i;
+            index.setTemplate(i % index.size(), template);
+            store.saveAsync(index);
+            assertSame(index, store.load());
+        }
+        store.close();
+
+        TemplateIndex read = new TemplateStore(file, DIMENSION).load();
+        for (int r = 0; r < index.size(); r++) {
+            assertArrayEquals(row(index, r), row(read, r), 0);
+        }
+    }
+
+    @Test
+    public void syncSaveAfterAsyncOneIsNotOverwritten() throws IOException {
+        TemplateStore store = new TemplateStore(file, DIMENSION);
+        store.saveAsync(randomIndex(new Random(5), 4));
+        TemplateIndex newest = randomIndex(new Random(6), 5);
+        store.save(newest);
+        store.close();
+        assertEquals(5, new TemplateStore(file, DIMENSION).load().size());
+    }
+
+    @Test
+    public void quantizedSaveAsyncCachesWhatItWrites() throws IOException {
+        TemplateStore store = new TemplateStore(file, DIMENSION, true);
+        TemplateIndex index = randomIndex(new Random(7), 5);
+        store.saveAsync(index);
+        TemplateIndex cached = store.load();
+        assertNotSame(index, cached);
+        store.close();
+        TemplateIndex read = new TemplateStore(file, DIMENSION, true).load();
+        for (int r = 0; r < index.size(); r++) {
+            assertArrayEquals(row(cached, r), row(read, r), 0);
+        }
+    }
+
+    @Test
+    public void backgroundWriteFailureIsThrownOnce() throws IOException {
+        assertTrue(file.mkdir()); // Nothing can be renamed over a directory
+        TemplateStore store = new TemplateStore(file, DIMENSION);
+        store.saveAsync(randomIndex(new Random(8), 2));
+        try {
+            store.flush();
+            fail("Expected the write to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Cannot replace"));
+        }
+        store.close();
+    }
+
+    @Test
+    public void closeStopsTheWriterThread() throws IOException, InterruptedException {
+        TemplateStore store = new TemplateStore(file, DIMENSION);
+        store.saveAsync(randomIndex(new Random(9), 3));
+        store.close();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("template-writer")) {
+                thread.join(1000);
+                assertFalse(thread.isAlive());
+            }
+        }
+        assertEquals(3, new TemplateStore(file, DIMENSION).load().size());
+
+        // The store remains usable and starts a new writer
+        store.saveAsync(randomIndex(new Random(10), 4));
+        store.close();
+        assertEquals(4, new TemplateStore(file, DIMENSION).load().size());
+    }
+
+    @Test
+    public void singleTemplateFormatLoadsAsDefaultUser() throws IOException {
+        float[] template = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            template[i] = i * 0.25f;
+        }
+        ByteBuffer buffer = header(TemplateStore.FORMAT_SINGLE, DIMENSION, DIMENSION * 4);
+        for (float v : template) {
+            buffer.putFloat(v);
+        }
+        write(finish(buffer));
+
+        TemplateIndex index = new TemplateStore(file, DIMENSION).load();
+        assertEquals(1, index.size());
+        assertEquals(TemplateStore.DEFAULT_USER, index.userOf(0));
+        assertArrayEquals(template, row(index, 0), 0);
+    }
+
+    @Test
+    public void corruptedFileIsRejected() throws IOException {
+        byte[] bytes = encoded(randomIndex(new Random(4), 2));
+        bytes[bytes.length / 2] ^= 1;
+        write(bytes);
+        assertLoadFails("checksum");
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        byte[] bytes = encoded(randomIndex(new Random(5), 2));
+        write(Arrays.copyOf(bytes, 10));
+        assertLoadFails("too short");
+    }
+
+    @Test
+    public void otherDimensionIsRejected() throws IOException {
+        TemplateIndex index = new TemplateIndex(DIMENSION * 2);
+        index.add("alice", new float[DIMENSION * 2]);
+        write(encoded(index));
+        assertLoadFails("dimension");
+    }
+
+    @Test
+    public void unknownVersionIsRejected() throws IOException {
+        write(finish(header((short) 9, DIMENSION, 0)));
+        assertLoadFails("version");
+    }
+
+    private void assertLoadFails(String message) {
+        try {
+            new TemplateStore(file, DIMENSION).load();
+            fail("Expected the load to fail");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    static TemplateIndex randomIndex(Random random, int rows) {
+        TemplateIndex index = new TemplateIndex(DIMENSION);
+        float[] template = new float[DIMENSION];
+        for (int r = 0; r < rows; r++) {
+            for (int i = 0; i < DIMENSION; i++) {
+                template[i] = (float) random.nextGaussian();
+            }
+            index.add("user" + r % 3, template);
+        }
+        return index;
+    }
+
+    static float[] row(TemplateIndex index, int row) {
+        float[] out = new float[index.dimension()];
+        index.copyTemplate(row, out);
+        return out;
+    }
+
+    private static byte[] encoded(TemplateIndex index) {
+        ByteBuffer buffer = TemplateStore.encode(index);
+        return Arrays.copyOf(buffer.array(), buffer.limit());
+    }
+
+    private static ByteBuffer header(short version, int dimension, int payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(TemplateStore.HEADER_SIZE + payload + TemplateStore.CRC_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(TemplateStore.MAGIC);
+        buffer.putShort(version);
+        buffer.putShort((short) 0);
+        buffer.putInt(dimension);
+        return buffer;
+    }
+
+    private static byte[] finish(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+    }
+}
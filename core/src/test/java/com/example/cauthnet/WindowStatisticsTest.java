@@ -0,0 +1,124 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+public class WindowStatisticsTest {
+
+    private static final int CHANNELS = WindowStatistics.CHANNELS;
+
+    @Test
+    public void emptyWindowKeepsOriginalConstants() {
+        WindowStatistics stats = new WindowStatistics(4);
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            assertEquals(0, stats.mean(ch), 0);
+            assertEquals(0, stats.stdDev(ch), 0);
+            assertEquals(Float.MAX_VALUE, stats.min(ch), 0);
+            assertEquals(0, stats.max(ch), 0);
+        }
+    }
+
+    @Test
+    public void matchesBatchComputationWhileSliding() {
+        Random random = new Random(3);
+        int capacity = 10;
+        WindowStatistics stats = new WindowStatistics(capacity);
+        float[] history = new float[5000 * CHANNELS];
+        for (int n = 0; n < 5000; n++) {
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                // Large offset so that drift from Welford removal would show before the refresh
+                history[n * CHANNELS + ch] = (float) (9.81 + random.nextGaussian() * 3);
+            }
+            int base = n * CHANNELS;
+            stats.add(history[base], history[base + 1], history[base + 2], history[base + 3]);
+            int first = Math.max(0, n + 1 - capacity);
+            assertEquals(n + 1 - first, stats.size());
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                assertWindow(history, first, n + 1, ch, stats);
+            }
+        }
+    }
+
+    @Test
+    public void monotonicRunsKeepMinAndMax() {
+        WindowStatistics stats = new WindowStatistics(3);
+        // Rising then falling, so both deques have to drop and evict entries
+        float[] values = {1, 2, 3, 4, 5, 4, 3, 2, 1, 1, 1, 7};
+        for (int n = 0; n < values.length; n++) {
+            stats.add(values[n], -values[n], 0, values[n]);
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            for (int i = Math.max(0, n - 2); i <= n; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            assertEquals("min at " + n, min, stats.min(0), 0);
+            assertEquals("max at " + n, max, stats.max(0), 0);
+            assertEquals("negated min at " + n, -max, stats.min(1), 0);
+            assertEquals("negated max at " + n, -min, stats.max(1), 0);
+        }
+    }
+
+    @Test
+    public void addReportsEvictedSample() {
+        WindowStatistics stats = new WindowStatistics(2);
+        float[] evicted = new float[CHANNELS];
+        assertFalse(stats.add(1, 2, 3, 4, evicted));
+        assertFalse(stats.add(5, 6, 7, 8, evicted));
+        assertTrue(stats.isFull());
+        assertTrue(stats.add(9, 10, 11, 12, evicted));
+        assertEquals(1, evicted[0], 0);
+        assertEquals(4, evicted[3], 0);
+        assertTrue(stats.add(13, 14, 15, 16, evicted));
+        assertEquals(5, evicted[0], 0);
+    }
+
+    @Test
+    public void clearStartsOver() {
+        WindowStatistics stats = new WindowStatistics(3);
+        for (int i = 0; i < 7; i++) {
+            stats.add(i, i, i, i);
+        }
+        stats.clear();
+        assertTrue(stats.isEmpty());
+        stats.add(2, 2, 2, 2);
+        stats.add(4, 4, 4, 4);
+        assertEquals(3, stats.mean(0), 0);
+        assertEquals(1, stats.stdDev(0), 1e-6f);
+        assertEquals(2, stats.min(0), 0);
+        assertEquals(4, stats.max(0), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCapacity() {
+        new WindowStatistics(0);
+    }
+
+    // Compares against a two-pass population mean and standard deviation over history[from, to)
+    private static void assertWindow(float[] history, int from, int to, int ch, WindowStatistics stats) {
+        double sum = 0;
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            float v = history[i * CHANNELS + ch];
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        double mean = sum / (to - from);
+        double sq = 0;
+        for (int i = from; i < to; i++) {
+            double d = history[i * CHANNELS + ch] - mean;
+            sq += d * d;
+        }
+        assertEquals(mean, stats.mean(ch), 1e-4);
+        assertEquals(Math.sqrt(sq / (to - from)), stats.stdDev(ch), 1e-4);
+        assertEquals(min, stats.min(ch), 0);
+        assertEquals(max, stats.max(ch), 0);
+    }
+}
@@ -0,0 +1,19 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    implementation(project(":core"))
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :eval:run --args="--roc roc.csv path/to/sessions"
+application {
+    mainClass.set("com.example.cauthnet.EvaluationHarness")
+    applicationName = "cauthnet-eval"
+}
@@ -0,0 +1,12 @@
+package com.example.cauthnet;
+
+/**
+ * Maps a 144-value feature vector to the vector that templates are compared in.
+ * Implementations must be safe to call from several threads at once.
+ */
+public interface Embedder {
+
+    int dimension();
+
+    void embed(float[] features, int offset, float[] out);
+}
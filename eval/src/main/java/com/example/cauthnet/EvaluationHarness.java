@@ -0,0 +1,455 @@
+package com.example.cauthnet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Offline replay of recorded sessions and threshold evaluation.
+ *
+ * Every session file is replayed through the app's frame alignment and tap feature extraction.
+ * Taps are embedded with the app's network when {@code --weights} is given (a file written by
+ * tools/export_weights.py), and compared in feature space otherwise. With {@code --int8} the
+ * whole evaluation is repeated on the quantized pipeline (int8 network and int8 templates) and
+ * its accuracy, embedding time and memory are reported next to the float32 ones.
+ * Sessions are grouped by their label (the user holding the phone). Each user's first
+ * {@code --enroll-taps} taps, in file order, are embedded and averaged into their template, as
+ * batched enrollment does; every later tap becomes an attempt scored on the average of the last
+ * {@code --history} attempts of its session. Each attempt is compared with every user's
+ * template: against its own user it gives a genuine distance, against anyone else an impostor
+ * distance. With {@code --sequential} every attempt is also scored on its own, and the app's
+ * sequential test is fitted to those single-tap distances and replayed along each session.
+ * Replay and scoring are split across cores with fork-join.
+ *
+ * Usage: cauthnet-eval [options] session files or directories
+ *   --weights FILE     exported network weights (none: compare features directly)
+ *   --int8             also evaluate the quantized pipeline; needs --weights
+ *   --enroll-taps N    taps per user used for enrollment (20)
+ *   --history N        attempts averaged per score (20)
+ *   --window N         samples per before/after window (10)
+ *   --frame-ms N       frame grid period (200)
+ *   --threads N        worker threads (all cores)
+ *   --thresholds a,b   thresholds for the FAR/FRR table (0.05 to 1.95 in steps of 0.05)
+ *   --roc FILE         write threshold,far,frr rows as CSV
+ *   --sequential       also evaluate sequential decisions over single taps
+ *   --alpha A          tolerated false accept rate of the sequential test (0.01)
+ *   --beta B           tolerated false reject rate of the sequential test (0.05)
+ *   --max-taps N       taps after which the sequential test rejects (10)
+ */
+public final class EvaluationHarness {
+
+    private static final int ROC_POINTS = 500;
+
+    private int enrollTaps = 20;
+    private int history = 20;
+    private int windowSize = 10;
+    private long framePeriodNanos = 200_000_000L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private float[] thresholds;
+    private File rocFile;
+    private final List<File> files = new ArrayList<>();
+    private Embedder embedder = new FeatureSpaceEmbedder();
+    private MlpWeights weights;
+    private boolean int8;
+    private boolean sequential;
+    private float falseAcceptRate = 0.01f;
+    private float falseRejectRate = 0.05f;
+    private int maxTaps = 10;
+
+    public static void main(String[] args) throws Exception {
+        EvaluationHarness harness = new EvaluationHarness();
+        try {
+            harness.parse(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        harness.run(System.out);
+    }
+
+    private void parse(String[] args) throws IOException {
+        thresholds = new float[39];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = 0.05f * (i + 1);
+        }
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                addFiles(new File(arg));
+                continue;
+            }
+            if (arg.equals("--int8")) {
+                int8 = true;
+                continue;
+            }
+            if (arg.equals("--sequential")) {
+                sequential = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--weights":
+                    try (InputStream in = new FileInputStream(value)) {
+                        weights = MlpWeights.read(in);
+                    }
+                    embedder = new NetworkEmbedder(weights, false);
+                    break;
+                case "--enroll-taps":
+                    enrollTaps = Integer.parseInt(value);
+                    break;
+                case "--history":
+                    history = Integer.parseInt(value);
+                    break;
+                case "--window":
+                    windowSize = Integer.parseInt(value);
+                    break;
+                case "--frame-ms":
+                    framePeriodNanos = Long.parseLong(value) * 1_000_000L;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--thresholds":
+                    String[] parts = value.split(",");
+                    thresholds = new float[parts.length];
+                    for (int t = 0; t < parts.length; t++) {
+                        thresholds[t] = Float.parseFloat(parts[t].trim());
+                    }
+                    break;
+                case "--roc":
+                    rocFile = new File(value);
+                    break;
+                case "--alpha":
+                    falseAcceptRate = Float.parseFloat(value);
+                    break;
+                case "--beta":
+                    falseRejectRate = Float.parseFloat(value);
+                    break;
+                case "--max-taps":
+                    maxTaps = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No session files given");
+        }
+        if (int8 && weights == null) {
+            throw new IllegalArgumentException("--int8 needs --weights");
+        }
+        Collections.sort(files);
+    }
+
+    private void addFiles(File path) {
+        File[] children = path.listFiles();
+        if (children == null) {
+            files.add(path);
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory() || child.getName().endsWith(".bin")) {
+                addFiles(child);
+            }
+        }
+    }
+
+    private void run(PrintStream out) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<SessionReplayer.ReplayedSession> sessions = pool.invoke(new ReplayTask(files, 0, files.size()));
+            long replayNanos = System.nanoTime() - start;
+
+            long recordedNanos = 0;
+            int taps = 0;
+            for (SessionReplayer.ReplayedSession session : sessions) {
+                recordedNanos += session.durationNanos;
+                taps += session.tapCount;
+            }
+            out.printf(Locale.US, "Replayed %d sessions (%d taps, %.1f min recorded) in %.2f s, %.0fx real time%n",
+                    sessions.size(), taps, recordedNanos / 60e9, replayNanos / 1e9,
+                    recordedNanos / (double) Math.max(1, replayNanos));
+
+            List<UserData> users = enroll(sessions, embedder, out);
+            if (users.size() < 2) {
+                out.println("Need at least two enrolled users to measure impostor distances");
+                return;
+            }
+            TemplateIndex templates = templateIndex(users, embedder.dimension());
+
+            start = System.nanoTime();
+            Scores scores = pool.invoke(new ScoreTask(users, embedder, templates, 0, users.size()));
+            out.printf(Locale.US, "Scored %d attempts against %d users in %.2f s%n",
+                    scores.attempts, users.size(), (System.nanoTime() - start) / 1e9);
+
+            RocAnalysis roc = new RocAnalysis(scores.genuine, scores.impostor);
+            out.println();
+            roc.printDistributions(out);
+            out.println();
+            out.printf(Locale.US, "EER %.4f at threshold %.4f; rank-1 identification %.4f%n",
+                    roc.eer(), roc.eerThreshold(), scores.identificationRate());
+            out.println();
+            roc.printTable(out, thresholds);
+            if (rocFile != null) {
+                roc.writeRoc(rocFile, ROC_POINTS);
+                out.println("ROC written to " + rocFile);
+            }
+            if (sequential) {
+                out.println();
+                new SequentialAnalysis(scores.genuineRuns, scores.impostorRuns)
+                        .print(out, falseAcceptRate, falseRejectRate, maxTaps);
+            }
+            if (int8) {
+                compareQuantized(pool, sessions, templates, scores, roc, out);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Runs the int8 pipeline over the same taps and prints it next to the float32 one
+    private void compareQuantized(ForkJoinPool pool, List<SessionReplayer.ReplayedSession> sessions,
+                                  TemplateIndex floatTemplates, Scores floatScores, RocAnalysis floatRoc,
+                                  PrintStream out) {
+        Embedder quantized = new NetworkEmbedder(weights, true);
+        List<UserData> users = enroll(sessions, quantized, null);
+        QuantizedTemplateIndex templates = new QuantizedTemplateIndex(templateIndex(users, quantized.dimension()));
+        Scores scores = pool.invoke(new ScoreTask(users, quantized, templates, 0, users.size()));
+        RocAnalysis roc = new RocAnalysis(scores.genuine, scores.impostor);
+
+        out.println();
+        out.printf(Locale.US, "%-16s %12s %12s %12s%n", "", "float32", "int8", "delta");
+        compareRow(out, "EER", floatRoc.eer(), roc.eer(), 4);
+        compareRow(out, "rank-1", floatScores.identificationRate(), scores.identificationRate(), 4);
+        compareRow(out, "embed us/tap", floatScores.embedMicros(), scores.embedMicros(), 1);
+        compareRow(out, "parameter bytes", weights.parameterBytes(),
+                new QuantizedMlpBackend(weights, 1).parameterBytes(), 0);
+        compareRow(out, "template bytes", floatTemplates.size() * floatTemplates.dimension() * 4,
+                templates.templateBytes(), 0);
+    }
+
+    private static void compareRow(PrintStream out, String name, double reference, double value, int decimals) {
+        String format = "%12." + decimals + "f";
+        out.printf(Locale.US, "%-16s " + format + " " + format + " " + format.replace("%", "%+") + "%n",
+                name, reference, value, value - reference);
+    }
+
+    private static TemplateIndex templateIndex(List<UserData> users, int dimension) {
+        TemplateIndex templates = new TemplateIndex(dimension, users.size());
+        for (UserData user : users) {
+            templates.add(user.name, user.template);
+        }
+        return templates;
+    }
+
+    // Splits each user's taps into enrollment and attempts and builds their template; out may be null
+    private List<UserData> enroll(List<SessionReplayer.ReplayedSession> sessions, Embedder embedder, PrintStream out) {
+        Map<String, UserData> byName = new TreeMap<>();
+        for (SessionReplayer.ReplayedSession session : sessions) {
+            UserData user = byName.get(session.label);
+            if (user == null) {
+                user = new UserData(session.label);
+                byName.put(session.label, user);
+            }
+            user.sessions.add(session);
+        }
+
+        List<UserData> users = new ArrayList<>();
+        int features = StreamingFeatureExtractor.FEATURE_COUNT;
+        int dimension = embedder.dimension();
+        for (UserData user : byName.values()) {
+            float[] embeddings = new float[enrollTaps * dimension];
+            float[] embedding = new float[dimension];
+            int enrolled = 0;
+            for (SessionReplayer.ReplayedSession session : user.sessions) {
+                int used = Math.min(session.tapCount, enrollTaps - enrolled);
+                for (int t = 0; t < used; t++) {
+                    embedder.embed(session.taps, t * features, embedding);
+                    System.arraycopy(embedding, 0, embeddings, enrolled++ * dimension, dimension);
+                }
+                user.firstAttempt.add(used);
+            }
+            if (enrolled < enrollTaps) {
+                if (out != null) {
+                    out.println("Skipping " + user.name + ": only " + enrolled + " taps recorded");
+                }
+                continue;
+            }
+            user.template = FeatureMath.averageEmbedding(embeddings, enrolled, dimension);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static final class UserData {
+        final String name;
+        final List<SessionReplayer.ReplayedSession> sessions = new ArrayList<>();
+        // Per session, index of the first tap that is an attempt rather than enrollment
+        final List<Integer> firstAttempt = new ArrayList<>();
+        float[] template;
+
+        UserData(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Scores {
+        final FloatList genuine = new FloatList();
+        final FloatList impostor = new FloatList();
+        // Single-tap distances per session and template, with --sequential
+        final List<float[]> genuineRuns = new ArrayList<>();
+        final List<float[]> impostorRuns = new ArrayList<>();
+        int attempts;
+        int identified;
+        long embedNanos;
+
+        Scores merge(Scores other) {
+            genuine.addAll(other.genuine);
+            impostor.addAll(other.impostor);
+            genuineRuns.addAll(other.genuineRuns);
+            impostorRuns.addAll(other.impostorRuns);
+            attempts += other.attempts;
+            identified += other.identified;
+            embedNanos += other.embedNanos;
+            return this;
+        }
+
+        float identificationRate() {
+            return identified / (float) Math.max(1, attempts);
+        }
+
+        double embedMicros() {
+            return embedNanos / 1e3 / Math.max(1, attempts);
+        }
+    }
+
+    // Fork/join tasks are Serializable only by inheritance; these are never serialized
+    @SuppressWarnings("serial")
+    private final class ReplayTask extends RecursiveTask<List<SessionReplayer.ReplayedSession>> {
+        private final List<File> files;
+        private final int from, to;
+
+        ReplayTask(List<File> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<SessionReplayer.ReplayedSession> compute() {
+            if (to - from == 1) {
+                try {
+                    return new ArrayList<>(Collections.singletonList(
+                            SessionReplayer.replay(files.get(from), windowSize, framePeriodNanos)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot replay " + files.get(from), e);
+                }
+            }
+            int mid = (from + to) >>> 1;
+            ReplayTask left = new ReplayTask(files, from, mid);
+            left.fork();
+            List<SessionReplayer.ReplayedSession> right = new ReplayTask(files, mid, to).compute();
+            List<SessionReplayer.ReplayedSession> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class ScoreTask extends RecursiveTask<Scores> {
+        private final List<UserData> users;
+        private final Embedder embedder;
+        private final TemplateMatcher templates;
+        private final int from, to;
+
+        ScoreTask(List<UserData> users, Embedder embedder, TemplateMatcher templates, int from, int to) {
+            this.users = users;
+            this.embedder = embedder;
+            this.templates = templates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Scores compute() {
+            if (to - from == 1) {
+                return score(users.get(from));
+            }
+            int mid = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(users, embedder, templates, from, mid);
+            left.fork();
+            Scores right = new ScoreTask(users, embedder, templates, mid, to).compute();
+            return left.join().merge(right);
+        }
+
+        private Scores score(UserData user) {
+            Scores scores = new Scores();
+            int features = StreamingFeatureExtractor.FEATURE_COUNT;
+            int userCount = templates.size();
+            float[] average = new float[features];
+            HistoryRing attempts = new HistoryRing(history, features, true);
+            float[] embedding = new float[embedder.dimension()];
+            float[] tapEmbedding = new float[embedder.dimension()];
+            int[] rows = new int[userCount];
+            float[] distances = new float[userCount];
+
+            for (int s = 0; s < user.sessions.size(); s++) {
+                SessionReplayer.ReplayedSession session = user.sessions.get(s);
+                int first = user.firstAttempt.get(s);
+                attempts.clear();
+                // Indexed by template row, then attempt
+                float[][] runs = sequential && session.tapCount > first ? new float[userCount][session.tapCount - first] : null;
+                for (int t = first; t < session.tapCount; t++) {
+                    // Average of this attempt and the ones before it in the session, like the app's history
+                    attempts.add(session.taps, t * features);
+                    attempts.average(average, 0);
+                    long start = System.nanoTime();
+                    embedder.embed(average, 0, embedding);
+                    scores.embedNanos += System.nanoTime() - start;
+
+                    int found = templates.nearest(embedding, userCount, rows, distances);
+                    for (int r = 0; r < found; r++) {
+                        if (templates.userOf(rows[r]).equals(user.name)) {
+                            scores.genuine.add(distances[r]);
+                        } else {
+                            scores.impostor.add(distances[r]);
+                        }
+                    }
+                    if (found > 0 && templates.userOf(rows[0]).equals(user.name)) {
+                        scores.identified++;
+                    }
+                    scores.attempts++;
+
+                    if (runs != null) {
+                        embedder.embed(session.taps, t * features, tapEmbedding);
+                        found = templates.nearest(tapEmbedding, userCount, rows, distances);
+                        for (int r = 0; r < found; r++) {
+                            runs[rows[r]][t - first] = distances[r];
+                        }
+                    }
+                }
+                if (runs != null) {
+                    for (int row = 0; row < userCount; row++) {
+                        (templates.userOf(row).equals(user.name) ? scores.genuineRuns : scores.impostorRuns).add(runs[row]);
+                    }
+                }
+            }
+            return scores;
+        }
+    }
+}
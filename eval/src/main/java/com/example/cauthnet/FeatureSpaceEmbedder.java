@@ -0,0 +1,30 @@
+package com.example.cauthnet;
+
+/**
+ * Compares taps directly in feature space: the features are clamped the same way the model
+ * input is and scaled to unit length, so distances fall in the same [0, 2] range as embedding
+ * distances. Used when the harness is given no network weights.
+ */
+public class FeatureSpaceEmbedder implements Embedder {
+
+    @Override
+    public int dimension() {
+        return StreamingFeatureExtractor.FEATURE_COUNT;
+    }
+
+    @Override
+    public void embed(float[] features, int offset, float[] out) {
+        double norm = 0;
+        for (int i = 0; i < out.length; i++) {
+            float v = Math.max(-EmbeddingBackend.FEATURE_CLAMP, Math.min(features[offset + i], EmbeddingBackend.FEATURE_CLAMP));
+            out[i] = v;
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] /= norm;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.cauthnet;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive floats.
+ */
+final class FloatList {
+
+    private float[] values = new float[64];
+    private int size;
+
+    void add(float value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    void addAll(FloatList other) {
+        if (size + other.size > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+        }
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    float[] toSortedArray() {
+        float[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
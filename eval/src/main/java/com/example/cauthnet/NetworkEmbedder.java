@@ -0,0 +1,27 @@
+package com.example.cauthnet;
+
+/**
+ * Embeds taps with the app's network, run from exported weights by {@link MlpBackend} or, when
+ * quantized, by {@link QuantizedMlpBackend}. The weights are shared; each thread gets its own
+ * backend for the activation buffers.
+ */
+public class NetworkEmbedder implements Embedder {
+
+    private final ThreadLocal<EmbeddingBackend> backends;
+
+    public NetworkEmbedder(MlpWeights weights, boolean quantized) {
+        backends = ThreadLocal.withInitial(() -> quantized
+                ? new QuantizedMlpBackend(weights, 1)
+                : new MlpBackend(weights, 1));
+    }
+
+    @Override
+    public int dimension() {
+        return EmbeddingBackend.EMBEDDING_SIZE;
+    }
+
+    @Override
+    public void embed(float[] features, int offset, float[] out) {
+        backends.get().embed(features, offset, out, 0);
+    }
+}
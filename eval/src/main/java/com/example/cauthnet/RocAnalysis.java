@@ -0,0 +1,122 @@
+package com.example.cauthnet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * FAR/FRR, ROC and equal error rate from genuine and impostor distances. An attempt is
+ * accepted when its distance is strictly below the threshold, as in the app.
+ */
+final class RocAnalysis {
+
+    private final float[] genuine;
+    private final float[] impostor;
+    private float eer = Float.NaN;
+    private float eerThreshold = Float.NaN;
+
+    RocAnalysis(FloatList genuine, FloatList impostor) {
+        this.genuine = genuine.toSortedArray();
+        this.impostor = impostor.toSortedArray();
+        if (this.genuine.length > 0 && this.impostor.length > 0) {
+            computeEer();
+        }
+    }
+
+    float eer() {
+        return eer;
+    }
+
+    float eerThreshold() {
+        return eerThreshold;
+    }
+
+    // Genuine attempts rejected at this threshold
+    float frr(float threshold) {
+        return genuine.length == 0 ? Float.NaN : 1f - (float) countBelow(genuine, threshold) / genuine.length;
+    }
+
+    // Impostor attempts accepted at this threshold
+    float far(float threshold) {
+        return impostor.length == 0 ? Float.NaN : (float) countBelow(impostor, threshold) / impostor.length;
+    }
+
+    void printDistributions(PrintStream out) {
+        out.printf(Locale.US, "%-9s %8s %8s %8s %8s %8s %8s%n", "distance", "n", "min", "p5", "p50", "p95", "max");
+        printDistribution(out, "genuine", genuine);
+        printDistribution(out, "impostor", impostor);
+    }
+
+    void printTable(PrintStream out, float[] thresholds) {
+        out.printf(Locale.US, "%9s %8s %8s%n", "threshold", "FAR", "FRR");
+        for (float t : thresholds) {
+            out.printf(Locale.US, "%9.3f %8.4f %8.4f%n", t, far(t), frr(t));
+        }
+    }
+
+    // Writes threshold,far,frr rows at up to maxPoints thresholds spread over the observed distances
+    void writeRoc(File file, int maxPoints) throws IOException {
+        float lo = Math.min(first(genuine), first(impostor));
+        float hi = Math.max(last(genuine), last(impostor));
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.println("threshold,far,frr");
+            for (int i = 0; i < maxPoints; i++) {
+                float t = lo + (hi - lo) * i / (maxPoints - 1);
+                out.printf(Locale.US, "%.6f,%.6f,%.6f%n", t, far(t), frr(t));
+            }
+        }
+    }
+
+    // Tries every observed distance as a threshold and keeps the one where FAR and FRR are closest
+    private void computeEer() {
+        float bestGap = Float.POSITIVE_INFINITY;
+        int g = 0, i = 0;
+        while (g < genuine.length || i < impostor.length) {
+            float t = i >= impostor.length || (g < genuine.length && genuine[g] <= impostor[i]) ? genuine[g] : impostor[i];
+            while (g < genuine.length && genuine[g] <= t) g++;
+            while (i < impostor.length && impostor[i] <= t) i++;
+            // Threshold just above t: everything at or below t is accepted
+            float far = (float) i / impostor.length;
+            float frr = 1f - (float) g / genuine.length;
+            float gap = Math.abs(far - frr);
+            if (gap < bestGap) {
+                bestGap = gap;
+                eer = (far + frr) / 2;
+                eerThreshold = Math.nextUp(t);
+            }
+        }
+    }
+
+    private static int countBelow(float[] sorted, float threshold) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < threshold) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void printDistribution(PrintStream out, String name, float[] sorted) {
+        if (sorted.length == 0) {
+            out.printf(Locale.US, "%-9s %8d%n", name, 0);
+            return;
+        }
+        out.printf(Locale.US, "%-9s %8d %8.4f %8.4f %8.4f %8.4f %8.4f%n", name, sorted.length, sorted[0],
+                percentile(sorted, 5), percentile(sorted, 50), percentile(sorted, 95), sorted[sorted.length - 1]);
+    }
+
+    private static float percentile(float[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p / 100 * sorted.length))];
+    }
+
+    private static float first(float[] sorted) {
+        return sorted.length == 0 ? Float.POSITIVE_INFINITY : sorted[0];
+    }
+
+    private static float last(float[] sorted) {
+        return sorted.length == 0 ? Float.NEGATIVE_INFINITY : sorted[sorted.length - 1];
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.cauthnet;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fits the single-tap distance distributions the app's sequential test assumes, then replays
+ * the test over every session's taps in order, restarting after each decision, to compare its
+ * error rates and taps per decision with deciding on one tap at the equal error threshold.
+ */
+final class SequentialAnalysis {
+
+    private final List<float[]> genuineRuns;
+    private final List<float[]> impostorRuns;
+    private final FloatList genuine = new FloatList();
+    private final FloatList impostor = new FloatList();
+    private final float genuineMean, genuineSigma;
+    private final float impostorMean, impostorSigma;
+
+    // Each run holds one session's single-tap distances to one user's template, in tap order
+    SequentialAnalysis(List<float[]> genuineRuns, List<float[]> impostorRuns) {
+        this.genuineRuns = genuineRuns;
+        this.impostorRuns = impostorRuns;
+        double[] g = fit(genuineRuns, genuine);
+        double[] i = fit(impostorRuns, impostor);
+        genuineMean = (float) g[0];
+        genuineSigma = (float) g[1];
+        impostorMean = (float) i[0];
+        impostorSigma = (float) i[1];
+    }
+
+    void print(PrintStream out, float falseAcceptRate, float falseRejectRate, int maxWindows) {
+        out.printf(Locale.US, "Single-tap distances: genuine %.4f sd %.4f, impostor %.4f sd %.4f%n",
+                genuineMean, genuineSigma, impostorMean, impostorSigma);
+        if (!(genuineMean < impostorMean) || !(genuineSigma > 0) || !(impostorSigma > 0)) {
+            out.println("Genuine and impostor distances do not separate; skipping the sequential test");
+            return;
+        }
+        SequentialDecision test = new SequentialDecision(genuineMean, genuineSigma, impostorMean, impostorSigma,
+                falseAcceptRate, falseRejectRate, maxWindows);
+        Tally g = replay(genuineRuns, test);
+        Tally i = replay(impostorRuns, test);
+        RocAnalysis single = new RocAnalysis(genuine, impostor);
+
+        out.printf(Locale.US, "%-12s %8s %8s %14s %14s%n", "decision", "FAR", "FRR", "taps/genuine", "taps/impostor");
+        out.printf(Locale.US, "%-12s %8.4f %8.4f %14.2f %14.2f%n", "single tap",
+                single.far(single.eerThreshold()), single.frr(single.eerThreshold()), 1.0, 1.0);
+        out.printf(Locale.US, "%-12s %8.4f %8.4f %14.2f %14.2f%n", "sequential",
+                i.rate(i.accepted), g.rate(g.rejected), g.meanWindows(), i.meanWindows());
+        out.printf(Locale.US, "alpha %.3f, beta %.3f, at most %d taps: %d genuine and %d impostor decisions, "
+                        + "%d reached the limit%n",
+                falseAcceptRate, falseRejectRate, maxWindows, g.decisions, i.decisions, g.truncated + i.truncated);
+    }
+
+    // Mean and sample standard deviation of every distance in the runs, which are also added to all
+    static double[] fit(List<float[]> runs, FloatList all) {
+        double sum = 0, sumSquares = 0;
+        int n = 0;
+        for (float[] run : runs) {
+            for (float d : run) {
+                all.add(d);
+                sum += d;
+                sumSquares += (double) d * d;
+                n++;
+            }
+        }
+        double mean = sum / Math.max(1, n);
+        double variance = n > 1 ? (sumSquares - n * mean * mean) / (n - 1) : 0;
+        return new double[]{mean, Math.sqrt(Math.max(0, variance))};
+    }
+
+    // Runs the test along each run; taps left over after the last decision of a run are dropped
+    static Tally replay(List<float[]> runs, SequentialDecision test) {
+        Tally tally = new Tally();
+        for (float[] run : runs) {
+            test.reset();
+            for (float d : run) {
+                SequentialDecision.Outcome outcome = test.add(d);
+                if (outcome == SequentialDecision.Outcome.PENDING) continue;
+                tally.decisions++;
+                tally.windows += test.getWindows();
+                if (outcome == SequentialDecision.Outcome.ACCEPT) {
+                    tally.accepted++;
+                } else {
+                    tally.rejected++;
+                }
+                if (test.getWindows() == test.getMaxWindows()) {
+                    tally.truncated++;
+                }
+                test.reset();
+            }
+        }
+        return tally;
+    }
+
+    static final class Tally {
+        int decisions;
+        int accepted;
+        int rejected;
+        int truncated;
+        long windows;
+
+        float rate(int count) {
+            return decisions == 0 ? Float.NaN : count / (float) decisions;
+        }
+
+        double meanWindows() {
+            return decisions == 0 ? Double.NaN : windows / (double) decisions;
+        }
+    }
+}
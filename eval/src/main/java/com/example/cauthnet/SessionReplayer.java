@@ -0,0 +1,87 @@
+package com.example.cauthnet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Replays one recorded session through the same frame alignment and tap feature extraction the
+ * app runs, as fast as the file can be read.
+ */
+final class SessionReplayer {
+
+    // Raw samples kept per sensor and how long a silent sensor may hold frames back; same as the app
+    private static final int RAW_SAMPLE_CAPACITY = 256;
+    private static final long SENSOR_SILENCE_NANOS = 2_000_000_000L;
+
+    static final class ReplayedSession {
+        final File file;
+        final String label;
+        final int tapCount;
+        // tapCount feature vectors back to back, in tap order
+        final float[] taps;
+        final int[] tapKinds;
+        final long durationNanos;
+
+        ReplayedSession(File file, String label, int tapCount, float[] taps, int[] tapKinds, long durationNanos) {
+            this.file = file;
+            this.label = label;
+            this.tapCount = tapCount;
+            this.taps = taps;
+            this.tapKinds = tapKinds;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    private SessionReplayer() {
+    }
+
+    static ReplayedSession replay(File file, int windowSize, long framePeriodNanos) throws IOException {
+        try (SessionReader reader = new SessionReader(file)) {
+            SensorWindowStore windows = new SensorWindowStore(windowSize);
+            FrameAligner aligner = new FrameAligner(framePeriodNanos, RAW_SAMPLE_CAPACITY, 2 * windowSize,
+                    SENSOR_SILENCE_NANOS, windows::addFrame);
+            TapCollector taps = new TapCollector(windows, aligner);
+            reader.read(taps);
+
+            long duration = 0;
+            if (reader.chunkCount() > 0) {
+                duration = reader.chunkMaxTimestamp(reader.chunkCount() - 1) - reader.chunkMinTimestamp(0);
+            }
+            return new ReplayedSession(file, reader.getLabel(), taps.count,
+                    Arrays.copyOf(taps.rows, taps.count * StreamingFeatureExtractor.FEATURE_COUNT),
+                    Arrays.copyOf(taps.kinds, taps.count), duration);
+        }
+    }
+
+    private static final class TapCollector implements SessionReader.Visitor {
+        private final SensorWindowStore windows;
+        private final FrameAligner aligner;
+        private float[] rows = new float[32 * StreamingFeatureExtractor.FEATURE_COUNT];
+        private int[] kinds = new int[32];
+        private int count;
+
+        TapCollector(SensorWindowStore windows, FrameAligner aligner) {
+            this.windows = windows;
+            this.aligner = aligner;
+        }
+
+        @Override
+        public void onSample(int sensor, long timestampNanos, float x, float y, float z) {
+            aligner.add(sensor, timestampNanos, x, y, z);
+        }
+
+        // Mirrors AuthEngine: mark the tap, snapshot the features, reset the windows
+        @Override
+        public void onTap(long timestampNanos, int kind) {
+            if (count == kinds.length) {
+                kinds = Arrays.copyOf(kinds, count * 2);
+                rows = Arrays.copyOf(rows, count * 2 * StreamingFeatureExtractor.FEATURE_COUNT);
+            }
+            windows.markTap();
+            FeatureKernel.compute(windows, rows, count * StreamingFeatureExtractor.FEATURE_COUNT);
+            windows.reset();
+            kinds[count++] = kind;
+        }
+    }
+}
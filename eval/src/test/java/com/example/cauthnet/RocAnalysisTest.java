@@ -0,0 +1,71 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RocAnalysisTest {
+
+    @Test
+    public void separableSetsHaveZeroEer() {
+        RocAnalysis roc = roc(new float[] {0.3f, 0.1f, 0.2f}, new float[] {0.6f, 0.5f});
+        assertEquals(0, roc.eer(), 0);
+        // Just above the largest genuine distance, which must itself be accepted
+        assertEquals(Math.nextUp(0.3f), roc.eerThreshold(), 0);
+        assertEquals(0, roc.far(roc.eerThreshold()), 0);
+        assertEquals(0, roc.frr(roc.eerThreshold()), 0);
+    }
+
+    @Test
+    public void distanceEqualToThresholdIsRejected() {
+        RocAnalysis roc = roc(new float[] {0.1f, 0.2f, 0.3f}, new float[] {0.5f, 0.6f});
+        assertEquals(1f / 3, roc.frr(0.3f), 1e-6f);
+        assertEquals(0, roc.far(0.5f), 0);
+        assertEquals(0.5f, roc.far(0.6f), 0);
+        assertEquals(1, roc.frr(0.1f), 0);
+        assertEquals(1, roc.far(Float.POSITIVE_INFINITY), 0);
+    }
+
+    @Test
+    public void overlappingSetsMeetBetweenTheirDistances() {
+        // Thresholds just above 0.1, 0.2, 0.3: FAR 0, 1/3, 1/3 against FRR 2/3, 2/3, 1/3
+        RocAnalysis roc = roc(new float[] {0.1f, 0.3f, 0.5f}, new float[] {0.2f, 0.4f, 0.6f});
+        assertEquals(1f / 3, roc.eer(), 1e-6f);
+        assertEquals(Math.nextUp(0.3f), roc.eerThreshold(), 0);
+        assertEquals(1f / 3, roc.far(roc.eerThreshold()), 1e-6f);
+        assertEquals(1f / 3, roc.frr(roc.eerThreshold()), 1e-6f);
+    }
+
+    @Test
+    public void tiedDistancesMoveTogether() {
+        // At 0.4 two genuine and two impostor attempts are accepted or rejected at once
+        RocAnalysis roc = roc(new float[] {0.2f, 0.4f, 0.4f, 0.6f}, new float[] {0.4f, 0.4f, 0.8f, 1.0f});
+        assertEquals(0.375f, roc.eer(), 1e-6f);
+        assertEquals(Math.nextUp(0.4f), roc.eerThreshold(), 0);
+        assertEquals(0.5f, roc.far(roc.eerThreshold()), 0);
+        assertEquals(0.25f, roc.frr(roc.eerThreshold()), 0);
+        assertEquals(0, roc.far(0.4f), 0);
+        assertEquals(0.75f, roc.frr(0.4f), 0);
+    }
+
+    @Test
+    public void missingAttemptsGiveNaN() {
+        RocAnalysis roc = roc(new float[] {0.1f}, new float[0]);
+        assertTrue(Float.isNaN(roc.eer()));
+        assertTrue(Float.isNaN(roc.far(0.5f)));
+        assertEquals(0, roc.frr(0.5f), 0);
+    }
+
+    private static RocAnalysis roc(float[] genuine, float[] impostor) {
+        return new RocAnalysis(list(genuine), list(impostor));
+    }
+
+    static FloatList list(float... values) {
+        FloatList list = new FloatList();
+        for (float v : values) {
+            list.add(v);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.cauthnet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SequentialAnalysisTest {
+
+    @Test
+    public void fitGivesMeanAndSampleDeviation() {
+        FloatList all = new FloatList();
+        double[] fit = SequentialAnalysis.fit(Arrays.asList(new float[] {1, 2}, new float[] {3}), all);
+        assertEquals(2, fit[0], 1e-9);
+        assertEquals(1, fit[1], 1e-9);
+        assertArrayEquals(new float[] {1, 2, 3}, all.toSortedArray(), 0);
+
+        double[] single = SequentialAnalysis.fit(Collections.singletonList(new float[] {0.5f}), new FloatList());
+        assertEquals(0.5, single[0], 1e-9);
+        assertEquals(0, single[1], 0);
+    }
+
+    @Test
+    public void replayRestartsAfterEachDecisionAndDropsTheRest() {
+        SequentialDecision test = new SequentialDecision(0.4f, 0.1f, 0.9f, 0.15f, 0.01f, 0.05f, 2);
+        // Weak evidence either way: two of these reach the limit, one alone stays pending
+        float unsure = 0.62f;
+        assertTrue(Math.abs(test.windowLogLikelihoodRatio(unsure)) < 1);
+
+        SequentialAnalysis.Tally tally = SequentialAnalysis.replay(Arrays.asList(
+                new float[] {0.4f, 0.9f, unsure, unsure, unsure},
+                new float[] {unsure, 0.4f}), test);
+        // Run one: accept, reject, then a reject at the limit, leaving one tap; run two: accept at the limit
+        assertEquals(4, tally.decisions);
+        assertEquals(2, tally.accepted);
+        assertEquals(2, tally.rejected);
+        assertEquals(2, tally.truncated);
+        assertEquals(1 + 1 + 2 + 2, tally.windows);
+        assertEquals(0.5f, tally.rate(tally.accepted), 0);
+        assertEquals(1.5, tally.meanWindows(), 1e-9);
+    }
+
+    @Test
+    public void emptyReplayHasNoRates() {
+        SequentialAnalysis.Tally tally = SequentialAnalysis.replay(Collections.<float[]>emptyList(),
+                new SequentialDecision(0.4f, 0.1f, 0.9f, 0.15f, 0.01f, 0.05f, 2));
+        assertTrue(Float.isNaN(tally.rate(tally.accepted)));
+        assertTrue(Double.isNaN(tally.meanWindows()));
+    }
+}
@@ -21,3 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "CAuthNet"
 include(":app")
+include(":core")
+include(":benchmark")
+include(":eval")
@@ -0,0 +1,156 @@
+#!/usr/bin/env python3
+"""Exports the embedding network's weights from the TorchScript archive for MlpWeights.
+
+The scripted SiameseNet is a stack of Linear layers with ReLU between them, a BatchNorm1d on
+the output and an L2 normalisation. This reads the tensors straight out of the .pt zip (no
+PyTorch install needed), checks the network has that shape and is in eval mode, and writes
+them in the layout MlpWeights.read expects (all little-endian):
+
+    int magic "CAMW", short version 1, short layer count
+    per linear layer: int in, int out, float weight[out][in], float bias[out]
+    int batch norm size (0 if none), float eps, float gamma, beta, running mean, running var
+
+Re-run it whenever model_scripted.pt changes:
+
+    python3 tools/export_weights.py app/src/main/assets/model_scripted.pt \
+        app/src/main/assets/model_weights.bin
+"""
+
+import pickle
+import re
+import struct
+import sys
+import zipfile
+
+MAGIC = 0x574D4143  # "CAMW"
+VERSION = 1
+DEFAULT_EPS = 1e-5
+
+
+class Tensor:
+    def __init__(self, storage, offset, size, stride):
+        self.storage = storage
+        self.offset = offset
+        self.size = tuple(size)
+        self.stride = tuple(stride)
+
+    def values(self, archive):
+        # Only contiguous float32 tensors occur in this model
+        expected = []
+        step = 1
+        for dim in reversed(self.size):
+            expected.insert(0, step)
+            step *= dim
+        if self.storage.dtype != "FloatStorage" or self.stride != tuple(expected):
+            raise ValueError("Unsupported tensor %s %s" % (self.storage.dtype, self.stride))
+        raw = archive.read(self.storage.path)
+        return list(struct.unpack_from("<%df" % step, raw, self.offset * 4))
+
+
+class Storage:
+    def __init__(self, dtype, path):
+        self.dtype = dtype
+        self.path = path
+
+
+class ScriptModule:
+    """Stands in for every __torch__ class; keeps the pickled attributes."""
+
+    def __setstate__(self, state):
+        self.__dict__.update(state)
+
+
+def _rebuild_tensor(storage, offset, size, stride, *unused):
+    return Tensor(storage, offset, size, stride)
+
+
+class ArchiveUnpickler(pickle.Unpickler):
+    def __init__(self, data, prefix):
+        super().__init__(data)
+        self.prefix = prefix
+
+    def find_class(self, module, name):
+        if module == "torch._utils" and name.startswith("_rebuild_tensor"):
+            return _rebuild_tensor
+        if module == "torch" and name.endswith("Storage"):
+            return name
+        if module == "collections" and name == "OrderedDict":
+            return dict
+        if module.startswith("__torch__"):
+            return type(name, (ScriptModule,), {})
+        raise pickle.UnpicklingError("Unexpected global %s.%s" % (module, name))
+
+    def persistent_load(self, pid):
+        # ('storage', storage type, key, location, element count)
+        return Storage(pid[1], "%s/data/%s" % (self.prefix, pid[2]))
+
+
+def load(path):
+    archive = zipfile.ZipFile(path)
+    pkl = next(n for n in archive.namelist() if n.endswith("/data.pkl"))
+    prefix = pkl[:-len("/data.pkl")]
+    with archive.open(pkl) as data:
+        model = ArchiveUnpickler(data, prefix).load()
+    eps = DEFAULT_EPS
+    for name in archive.namelist():
+        if name.endswith("batchnorm.py"):
+            match = re.search(r"eps : Final\[float\] = ([0-9.eE+-]+)", archive.read(name).decode())
+            if match:
+                eps = float(match.group(1))
+    return archive, model, eps
+
+
+def layers_of(model):
+    if getattr(model, "training", False):
+        raise ValueError("Model was scripted in training mode")
+    fc = model.__dict__["fc"]
+    return [fc.__dict__[k] for k in sorted((k for k in fc.__dict__ if k.isdigit()), key=int)]
+
+
+def export(source, target):
+    archive, model, eps = load(source)
+    linear = []
+    norm = None
+    modules = layers_of(model)
+    for i, module in enumerate(modules):
+        kind = type(module).__name__
+        last = i == len(modules) - 1
+        if kind == "Linear":
+            if linear and type(modules[i - 1]).__name__ != "ReLU":
+                raise ValueError("Linear layers must be separated by ReLU")
+            linear.append(module)
+        elif kind == "ReLU":
+            if last or type(modules[i - 1]).__name__ != "Linear":
+                raise ValueError("ReLU is only supported between linear layers")
+        elif kind == "BatchNorm1d" and last:
+            if module.training:
+                raise ValueError("BatchNorm1d was scripted in training mode")
+            norm = module
+        else:
+            raise ValueError("Unsupported layer %d: %s" % (i, kind))
+
+    out = bytearray(struct.pack("<iHH", MAGIC, VERSION, len(linear)))
+    for layer in linear:
+        rows, cols = layer.weight.size
+        out += struct.pack("<ii", cols, rows)
+        out += struct.pack("<%df" % (rows * cols), *layer.weight.values(archive))
+        out += struct.pack("<%df" % rows, *layer.bias.values(archive))
+    if norm is None:
+        out += struct.pack("<if", 0, 0)
+    else:
+        size = norm.weight.size[0]
+        out += struct.pack("<if", size, eps)
+        for tensor in (norm.weight, norm.bias, norm.running_mean, norm.running_var):
+            out += struct.pack("<%df" % size, *tensor.values(archive))
+    with open(target, "wb") as f:
+        f.write(out)
+
+    sizes = [linear[0].weight.size[1]] + [layer.weight.size[0] for layer in linear]
+    print("Wrote %s: %s, batch norm %s, eps %g, %d bytes"
+          % (target, "-".join(map(str, sizes)), "yes" if norm else "no", eps, len(out)))
+
+
+if __name__ == "__main__":
+    if len(sys.argv) != 3:
+        sys.exit("usage: export_weights.py model_scripted.pt model_weights.bin")
+    export(sys.argv[1], sys.argv[2])